@@ -0,0 +1,141 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.employees.Employees;
+import com.speedment.enterprise.aggregator.Aggregation;
+import com.speedment.enterprise.aggregator.Aggregator;
+import com.speedment.runtime.join.Join;
+import com.speedment.webapp.DataModel.DeptEmplEmployeesSalaries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Date;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.averagingDouble;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Benchmarks the aggregations in {@link DataModel} using the Speedment Aggregator and
+ * plain {@code Collectors.groupingBy}, sequentially and in parallel, for a single
+ * department and for all departments. Requires the same database as the application.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec}. Throughput and latency
+ * percentiles are reported for every benchmark together with the allocation rate per
+ * operation from the gc profiler. Results are also written to target/jmh-result.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DataModelBenchmark {
+
+    @Param({"sequential", "parallel"})
+    public String execution;
+
+    @Param({"department", "all"})
+    public String scope;
+
+    private Departments dept;
+    private Date currentDate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DataModel.speedment(); // Loads the DataStore
+        dept = DataModel.departments().findFirst().orElseThrow(NoSuchElementException::new);
+        currentDate = Date.valueOf(DataModel.snapshot().getCurrentDate());
+    }
+
+    @Benchmark
+    public long countAggregator() {
+        return aggregate(DataModel.countAggregator());
+    }
+
+    @Benchmark
+    public Map<Employees.Gender, Long> countGroupingBy() {
+        return rows().collect(groupingBy(t -> t.employees().getGender(), counting()));
+    }
+
+    @Benchmark
+    public long averageAggregator() {
+        return aggregate(DataModel.averageAggregator());
+    }
+
+    @Benchmark
+    public Double averageCollectors() {
+        return rows().collect(averagingDouble(t -> t.salaries().getSalary()));
+    }
+
+    @Benchmark
+    public long frequencyAggregator() {
+        return aggregate(DataModel.frequencyAggregator());
+    }
+
+    @Benchmark
+    public Map<Employees.Gender, Map<Integer, Long>> frequencyGroupingBy() {
+        return rows().collect(
+            groupingBy(t -> t.employees().getGender(),
+                groupingBy(t -> t.salaries().getSalary() / DataModel.SALARY_BUCKET_SIZE,
+                    counting()
+                )
+            )
+        );
+    }
+
+    @Benchmark
+    public long dashboardAggregator() {
+        return aggregate(DataModel.dashboardAggregator());
+    }
+
+    private Stream<DeptEmplEmployeesSalaries> rows() {
+        final Join<DeptEmplEmployeesSalaries> join = "all".equals(scope)
+            ? DataModel.joinAllDeptEmpSal(currentDate)
+            : DataModel.joinDeptEmpSal(dept, currentDate);
+
+        final Stream<DeptEmplEmployeesSalaries> stream = join.stream();
+        return "parallel".equals(execution) ? stream.parallel() : stream.sequential();
+    }
+
+    private <R> long aggregate(Aggregator<DeptEmplEmployeesSalaries, ?, R> aggregator) {
+        try (Aggregation<R> aggregation = rows().collect(aggregator.createCollector())) {
+            return aggregation.stream().count();
+        }
+    }
+
+    /* Runs the benchmarks with the gc profiler, any JMH command line options are passed on */
+    public static void main(String... args) throws RunnerException, CommandLineOptionException {
+        final Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .include(DataModelBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result("target/jmh-result.json")
+            .build();
+
+        new Runner(options).run();
+    }
+}
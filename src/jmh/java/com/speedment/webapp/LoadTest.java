@@ -0,0 +1,311 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Simulates concurrent dashboard sessions and reports throughput, latency percentiles for each
+ * operation and query pool saturation.
+ * <p>
+ * Every session opens the dashboard once ("init") and then repeatedly switches to a random
+ * department ("department") or year ("asOf") after a random think time, like a user of
+ * {@link EmployeeUI}. In process, the sessions go through {@link UiExecutor} and
+ * {@link DataModel} like {@code EmployeeUI.updateUI} does. Against a running server, such as
+ * one started with {@code mvn jetty:run}, they use the JSON API because the Vaadin client
+ * protocol cannot be scripted. Neither way creates {@link EmployeeUI} instances or Vaadin sessions,
+ * so the memory a real session retains is not measured. The as-of dashboards are shared by all
+ * sessions, so they are computed before the measurement starts.
+ * <p>
+ * By default a department switch looks up the dashboard in the snapshot like the UI does. With
+ * {@code --mode compute} it runs the join and aggregation on the query pool instead, which puts
+ * load on the pool and shows how it saturates. Sessions asking for the same department at the
+ * same time share one computation, like in the application.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.speedment.webapp.LoadTest
+ * -Djmh.args="--sessions 500 --seconds 120"}. Options:
+ * <ul>
+ *     <li>{@code --sessions n} simulated sessions, 100 by default</li>
+ *     <li>{@code --seconds n} duration of the measurement, 60 by default</li>
+ *     <li>{@code --think millis} mean think time between clicks, 1000 by default</li>
+ *     <li>{@code --url http://localhost:8080} drives a running server instead of running in process</li>
+ *     <li>{@code --threads n} HTTP client threads, the number of sessions by default</li>
+ *     <li>{@code --mode lookup|compute} how department switches are answered in process, lookup by default</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private static final String[] OPERATIONS = {"init", "department", "asOf"};
+    private static final int FIRST_YEAR = 1985;
+
+    private final int sessions;
+    private final int seconds;
+    private final int thinkMillis;
+    private final String url;
+    private final int threads;
+    private final boolean compute;
+
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicInteger maxActiveThreads = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService httpClients;
+    private List<Departments> departments;
+    private List<String> deptNos;
+    private DashboardSnapshot snapshot;
+
+    private LoadTest(Map<String, String> options) {
+        sessions = Integer.parseInt(options.getOrDefault("sessions", "100"));
+        seconds = Integer.parseInt(options.getOrDefault("seconds", "60"));
+        thinkMillis = Integer.parseInt(options.getOrDefault("think", "1000"));
+        url = options.get("url");
+        threads = Integer.parseInt(options.getOrDefault("threads", Integer.toString(sessions)));
+        final String mode = options.getOrDefault("mode", "lookup");
+        if (!"lookup".equals(mode) && !"compute".equals(mode)) {
+            throw new IllegalArgumentException("--mode must be lookup or compute");
+        }
+        compute = "compute".equals(mode);
+        if (compute && url != null) {
+            throw new IllegalArgumentException("--mode compute only runs in process");
+        }
+        for (String operation : OPERATIONS) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        new LoadTest(options).run();
+        System.exit(0); // The DataStore and the executors of the application use non daemon threads
+    }
+
+    private void run() throws Exception {
+        scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), daemon("load-scheduler"));
+        if (url == null) {
+            System.out.println("Loading the snapshot in process");
+            snapshot = DataModel.snapshot();
+            departments = DataModel.departments().collect(toList());
+            deptNos = departments.stream().map(Departments::getDeptNo).collect(toList());
+            System.out.println("Computing the as-of dashboards shared by all sessions");
+            for (Departments dept : departments) {
+                for (int year = FIRST_YEAR; year < LocalDate.now().getYear(); year++) {
+                    DataModel.dashboard(dept, yearEnd(year));
+                }
+            }
+        } else {
+            httpClients = Executors.newFixedThreadPool(threads, daemon("load-http"));
+            deptNos = parseDeptNos(get("/api/departments"));
+        }
+        System.out.format("%d sessions, %d departments, %d ms think time, %d s%s%n",
+            sessions, deptNos.size(), thinkMillis, seconds, compute ? ", computing dashboards" : "");
+
+        for (int i = 0; i < sessions; i++) {
+            final Session session = new Session();
+            scheduler.schedule(session::init, ThreadLocalRandom.current().nextInt(Math.max(1, thinkMillis)), TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleAtFixedRate(this::sample, 250, 250, TimeUnit.MILLISECONDS);
+
+        final long start = System.nanoTime();
+        for (int elapsed = 0; elapsed < seconds; ) {
+            final int step = Math.min(10, seconds - elapsed);
+            TimeUnit.SECONDS.sleep(step);
+            elapsed += step;
+            if (elapsed < seconds) {
+                report("after " + elapsed + " s", System.nanoTime() - start);
+            }
+        }
+        running = false;
+        report("total", System.nanoTime() - start);
+    }
+
+    /* One simulated user, clicking like an EmployeeUI instance */
+    private final class Session {
+
+        private String deptNo;
+        private LocalDate asOf;
+
+        private void init() {
+            deptNo = deptNos.get(0);
+            execute("init", this::think);
+        }
+
+        private void click() {
+            if (!running) {
+                return;
+            }
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextInt(4) == 0) {
+                asOf = yearEnd(FIRST_YEAR + random.nextInt(LocalDate.now().getYear() - FIRST_YEAR));
+                execute("asOf", this::think);
+            } else {
+                asOf = null;
+                deptNo = deptNos.get(random.nextInt(deptNos.size()));
+                execute("department", this::think);
+            }
+        }
+
+        private void think() {
+            if (running) {
+                final long millis = (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * thinkMillis);
+                scheduler.schedule(this::click, millis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /* Runs the operation off the scheduler and continues with next when it is done */
+        private void execute(String operation, Runnable next) {
+            final long start = System.nanoTime();
+            final Runnable task = () -> {
+                try {
+                    if (url == null) {
+                        dashboardInProcess();
+                    } else {
+                        get(asOf == null
+                            ? "/api/departments/" + deptNo
+                            : "/api/departments/" + deptNo + "?asOf=" + asOf);
+                    }
+                    latencies.get(operation).record(System.nanoTime() - start);
+                } catch (RuntimeException | IOException e) {
+                    errors.increment();
+                } finally {
+                    next.run();
+                }
+            };
+            try {
+                if (url == null) {
+                    UiExecutor.submit(task);
+                } else {
+                    httpClients.execute(task);
+                }
+            } catch (RejectedExecutionException e) {
+                rejected.increment(); // The user sees "The server is busy" and clicks again later
+                next.run();
+            }
+        }
+
+        private Object dashboardInProcess() {
+            final Departments dept = departments.get(deptNos.indexOf(deptNo));
+            if (asOf != null) {
+                return DataModel.dashboard(dept, asOf);
+            }
+            return compute ? DataModel.computeDashboard(snapshot, dept) : DataModel.dashboard(dept);
+        }
+    }
+
+    /* Samples how busy the query pool is, from the metrics endpoint when running against a server */
+    private void sample() {
+        try {
+            final int active;
+            final int queued;
+            if (url == null) {
+                active = QueryExecutor.getActiveThreads();
+                queued = QueryExecutor.getQueueDepth();
+            } else {
+                final String metrics = get("/metrics");
+                active = (int) gauge(metrics, "employees_query_pool_active_threads");
+                queued = (int) gauge(metrics, "employees_query_queue_depth");
+            }
+            maxActiveThreads.accumulateAndGet(active, Math::max);
+            maxQueueDepth.accumulateAndGet(queued, Math::max);
+        } catch (IOException | RuntimeException e) {
+            // Sampling is best effort
+        }
+    }
+
+    private void report(String title, long nanos) {
+        System.out.format("--- %s ---%n", title);
+        System.out.format("%-12s %10s %10s %10s %10s %10s%n", "operation", "count", "ops/s", "p50 ms", "p95 ms", "p99 ms");
+        latencies.forEach((operation, histogram) -> System.out.format(Locale.ROOT, "%-12s %10d %10.1f %10.2f %10.2f %10.2f%n",
+            operation,
+            histogram.getCount(),
+            histogram.getCount() * 1e9 / nanos,
+            histogram.percentileNanos(0.50) / 1e6,
+            histogram.percentileNanos(0.95) / 1e6,
+            histogram.percentileNanos(0.99) / 1e6
+        ));
+        System.out.format("errors %d, rejected %d, query pool max active threads %d, max queued %d%n",
+            errors.sum(), rejected.sum(), maxActiveThreads.get(), maxQueueDepth.get());
+        if (url == null) {
+            System.out.format("query pool parallelism %d, ui queue depth %d%n", QueryExecutor.getParallelism(), UiExecutor.queueDepth());
+        }
+    }
+
+    private String get(String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+        connection.setConnectTimeout(10_000);
+        connection.setReadTimeout(60_000);
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException(path + " answered " + connection.getResponseCode());
+        }
+        final StringBuilder body = new StringBuilder();
+        try (InputStream in = connection.getInputStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                body.append(line).append('\n');
+            }
+        }
+        return body.toString();
+    }
+
+    /* The slider of the UI shows the departments at the end of a year */
+    private static LocalDate yearEnd(int year) {
+        return LocalDate.of(year, 12, 31);
+    }
+
+    private static List<String> parseDeptNos(String json) {
+        final List<String> deptNos = new ArrayList<>();
+        final Matcher matcher = Pattern.compile("\"dept_no\":\"([^\"]+)\"").matcher(json);
+        while (matcher.find()) {
+            deptNos.add(matcher.group(1));
+        }
+        return deptNos;
+    }
+
+    private static double gauge(String metrics, String name) {
+        final Matcher matcher = Pattern.compile("(?m)^" + name + " (\\S+)$").matcher(metrics);
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) : 0;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + '-' + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,224 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.salaries.Salaries;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Index over the validity ranges of dept_emp and salaries that answers dashboards as of
+ * any date. The members of each department are sorted on from_date so that only rows
+ * that started before the date are visited, and the salaries of an employee are found
+ * with a binary search on emp_no. A historical dashboard therefore costs about the same
+ * as a current one instead of a scan of all salaries.
+ * <p>
+ * A department member and a salary count on a date if from_date &lt;= date &lt;= to_date. A raise
+ * ends the old salary on the day the new one starts, so on that day only the later salary is used.
+ * The current dashboards in {@link DataModel} filter dept_emp and salaries with the same inclusive
+ * to_date rule, so a dashboard as of today counts the same members as the current one.
+ * <p>
+ * Computed dashboards are kept for the lifetime of the index, which is one snapshot version,
+ * so that all sessions looking at the same department and date share one instance.
+ */
+final class AsOfIndex {
+
+    private static final Employees.Gender[] GENDERS = Employees.Gender.values();
+
+    /* Employees sorted on emp_no */
+    private final int[] employeeNos;
+    private final byte[] genders;
+
+    /* Salaries sorted on emp_no and then from_date, dates are epoch days */
+    private final int[] salaryEmpNos;
+    private final int[] salaryFrom;
+    private final int[] salaryTo;
+    private final int[] salaries;
+    private final int maxSalary;
+
+    private final Map<String, Members> departments;
+
+    /* Dashboards computed so far on department and date, up to employees.asof.cache of them */
+    private static final int MAX_INTERNED = Integer.getInteger("employees.asof.cache", 1024);
+    private final ConcurrentMap<String, DepartmentDashboard> interned = new ConcurrentHashMap<>();
+
+    private AsOfIndex(int[] employeeNos, byte[] genders, Rows salaryRows, Map<String, Members> departments) {
+        this.employeeNos = employeeNos;
+        this.genders = genders;
+        this.salaryEmpNos = salaryRows.column(0);
+        this.salaryFrom = salaryRows.column(1);
+        this.salaryTo = salaryRows.column(2);
+        this.salaries = salaryRows.column(3);
+        this.maxSalary = Arrays.stream(salaries).max().orElse(0);
+        this.departments = Collections.unmodifiableMap(departments);
+    }
+
+    static AsOfIndex build(Stream<DeptEmp> deptEmps, Stream<Employees> employees, Stream<Salaries> salaries) {
+        final Rows employeeRows = new Rows(2);
+        employees.forEachOrdered(e -> employeeRows.add(e.getEmpNo(), e.getGender().ordinal()));
+        employeeRows.sortOn(0);
+        final int[] genderCodes = employeeRows.column(1);
+        final byte[] genders = new byte[genderCodes.length];
+        for (int i = 0; i < genders.length; i++) {
+            genders[i] = (byte) genderCodes[i];
+        }
+
+        final Rows salaryRows = new Rows(4);
+        salaries.forEachOrdered(s -> salaryRows.add(s.getEmpNo(), day(s.getFromDate()), day(s.getToDate()), s.getSalary()));
+        salaryRows.sortOn(0);
+        salaryRows.sortRunsOn(0, 1); // Each employee only has a handful of salaries
+
+        final Map<String, Rows> memberRows = new HashMap<>();
+        deptEmps.forEachOrdered(de -> memberRows.computeIfAbsent(de.getDeptNo(), deptNo -> new Rows(3))
+            .add(de.getEmpNo(), day(de.getFromDate()), day(de.getToDate()))
+        );
+        final Map<String, Members> departments = new HashMap<>();
+        memberRows.forEach((deptNo, rows) -> {
+            rows.sortOn(1);
+            departments.put(deptNo, new Members(rows.column(0), rows.column(1), rows.column(2)));
+        });
+
+        return new AsOfIndex(employeeRows.column(0), genders, salaryRows, departments);
+    }
+
+    /* Returns the dashboard for the department as it looked on the date */
+    DepartmentDashboard dashboard(String deptNo, LocalDate asOf) {
+        final String key = deptNo + ':' + asOf;
+        final DepartmentDashboard known = interned.get(key);
+        if (known != null) {
+            return known;
+        }
+        final DepartmentDashboard computed = compute(deptNo, asOf);
+        if (interned.size() < MAX_INTERNED) {
+            final DepartmentDashboard raced = interned.putIfAbsent(key, computed);
+            return raced != null ? raced : computed;
+        }
+        return computed;
+    }
+
+    private DepartmentDashboard compute(String deptNo, LocalDate asOf) {
+        final Members members = departments.get(deptNo);
+        if (members == null) {
+            return DepartmentDashboard.EMPTY;
+        }
+
+        final int day = (int) asOf.toEpochDay();
+        final long[] counts = new long[GENDERS.length];
+        final long[][] histogram = new long[GENDERS.length][maxSalary / DataModel.SALARY_BUCKET_SIZE + 1];
+        long salarySum = 0;
+        long rows = 0;
+
+        // Only members that started on or before the date can be valid
+        final int candidates = SortedArrays.upperBound(members.from, day);
+        for (int i = 0; i < candidates; i++) {
+            if (members.to[i] < day) {
+                continue;
+            }
+            final int empNo = members.empNos[i];
+            final int employee = Arrays.binarySearch(employeeNos, empNo);
+            if (employee < 0) {
+                continue;
+            }
+            int current = -1;
+            for (int s = SortedArrays.lowerBound(salaryEmpNos, empNo); s < salaryEmpNos.length && salaryEmpNos[s] == empNo && salaryFrom[s] <= day; s++) {
+                if (salaryTo[s] >= day) {
+                    current = s; // Salaries are sorted on from_date, so the latest one wins
+                }
+            }
+            if (current >= 0) {
+                final int gender = genders[employee];
+                counts[gender]++;
+                histogram[gender][salaries[current] / DataModel.SALARY_BUCKET_SIZE]++;
+                salarySum += salaries[current];
+                rows++;
+            }
+        }
+        Metrics.rows("dashboardAsOf", deptNo, candidates, rows);
+
+        return DepartmentDashboard.of(counts, histogram, salarySum);
+    }
+
+    private static int day(Date date) {
+        return (int) date.toLocalDate().toEpochDay();
+    }
+
+    /* dept_emp rows of one department sorted on from_date */
+    private static final class Members {
+
+        private final int[] empNos;
+        private final int[] from;
+        private final int[] to;
+
+        private Members(int[] empNos, int[] from, int[] to) {
+            this.empNos = empNos;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /* Growable table of int columns, only used while building */
+    private static final class Rows {
+
+        private int[][] columns;
+        private int size;
+
+        private Rows(int columnCount) {
+            columns = new int[columnCount][16];
+        }
+
+        private void add(int... values) {
+            if (size == columns[0].length) {
+                for (int c = 0; c < columns.length; c++) {
+                    columns[c] = Arrays.copyOf(columns[c], size * 2);
+                }
+            }
+            for (int c = 0; c < columns.length; c++) {
+                columns[c][size] = values[c];
+            }
+            size++;
+        }
+
+        private int[] column(int column) {
+            return columns[column].length == size ? columns[column] : Arrays.copyOf(columns[column], size);
+        }
+
+        /* Sorts all rows on the column by sorting (value, row) pairs packed into longs */
+        private void sortOn(int column) {
+            final long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) columns[column][i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int c = 0; c < columns.length; c++) {
+                final int[] sorted = new int[size];
+                for (int i = 0; i < size; i++) {
+                    sorted[i] = columns[c][(int) keys[i]];
+                }
+                columns[c] = sorted;
+            }
+        }
+
+        /* Insertion sorts every run of equal values in the group column on the sort column */
+        private void sortRunsOn(int group, int column) {
+            for (int i = 1; i < size; i++) {
+                for (int j = i; j > 0
+                    && columns[group][j - 1] == columns[group][j]
+                    && columns[column][j - 1] > columns[column][j]; j--) {
+                    for (int[] values : columns) {
+                        final int swap = values[j];
+                        values[j] = values[j - 1];
+                        values[j - 1] = swap;
+                    }
+                }
+            }
+        }
+    }
+}
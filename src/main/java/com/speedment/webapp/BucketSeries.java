@@ -0,0 +1,70 @@
+package com.speedment.webapp;
+
+import com.vaadin.addon.charts.model.DataSeries;
+import com.vaadin.addon.charts.model.DataSeriesItem;
+
+import java.util.Arrays;
+
+/**
+ * Dense, bucket indexed view of a {@link DataSeries} holding salary histogram counts. Item i is
+ * the bucket {@code first + i} at the current level, so the points are sorted by construction.
+ * As long as the level and the first bucket stay the same, new counts are sent to the client
+ * as updates of the points that changed instead of as a new series.
+ * <p>
+ * The counts are read straight from the shared histogram of the snapshot, so a session only
+ * holds the chart items that Vaadin needs to keep the client in sync.
+ */
+final class BucketSeries {
+
+    private final DataSeries series;
+    private int level = -1;
+    private int first;
+    private DataSeriesItem[] items = new DataSeriesItem[0];
+
+    BucketSeries(DataSeries series) {
+        this.series = series;
+    }
+
+    /*
+     * Makes room for count buckets starting at first. Returns true if the points were replaced,
+     * in which case the chart must be redrawn. The series only grows while the level and the
+     * first bucket are unchanged, so switching between departments keeps the same points.
+     */
+    boolean layout(int level, int first, int count) {
+        if (level == this.level && first == this.first && count <= items.length) {
+            return false;
+        }
+        final int size = level == this.level && first == this.first ? Math.max(count, items.length) : count;
+        final int bucketSize = SalaryHistogram.bucketSize(level);
+        items = new DataSeriesItem[size];
+        for (int i = 0; i < size; i++) {
+            items[i] = new DataSeriesItem((first + i) * bucketSize, 0);
+        }
+        this.level = level;
+        this.first = first;
+        series.setData(Arrays.asList(items));
+        return true;
+    }
+
+    /*
+     * Shows the counts of the histogram at the current level, up to the salary. Changed points are pushed
+     * to the client unless the chart is about to be redrawn anyway. Returns the number of changed points.
+     */
+    int update(SalaryHistogram histogram, int toSalary, boolean push) {
+        final long[] buckets = histogram.buckets(level);
+        final int end = Math.min(buckets.length, toSalary / SalaryHistogram.bucketSize(level) + 1);
+        int changed = 0;
+        for (int i = 0; i < items.length; i++) {
+            final int bucket = first + i;
+            final long value = bucket < end ? buckets[bucket] : 0;
+            if (value != items[i].getY().longValue()) {
+                items[i].setY(value);
+                if (push) {
+                    series.update(items[i]);
+                }
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,227 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.salaries.Salaries;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Primitive, column oriented copy of the department/employee/current salary join. Each
+ * department holds one row per joined salary in parallel arrays, sorted on emp_no, so
+ * that aggregations are tight loops over primitives without allocating a tuple per row.
+ */
+public final class ColumnarIndex {
+
+    static final String ENGINE_PROPERTY = "employees.engine";
+
+    private static final Employees.Gender[] GENDERS = Employees.Gender.values();
+
+    private final Map<String, Partition> partitions;
+
+    private ColumnarIndex(Map<String, Partition> partitions) {
+        this.partitions = Collections.unmodifiableMap(partitions);
+    }
+
+    static boolean isEnabled() {
+        return "columnar".equalsIgnoreCase(System.getProperty(ENGINE_PROPERTY));
+    }
+
+    /*
+     * Builds the index with a merge join of the three inputs. The dept_emp rows and the salaries
+     * should already be filtered on the current date. Entities are only materialized here, never
+     * when querying.
+     */
+    static ColumnarIndex build(Stream<DeptEmp> deptEmps, Stream<Employees> employees, Stream<Salaries> currentSalaries) {
+        final long[] genders = employees
+            .mapToLong(e -> pack(e.getEmpNo(), e.getGender().ordinal()))
+            .sorted()
+            .toArray();
+
+        final long[] salaries = currentSalaries
+            .mapToLong(s -> pack(s.getEmpNo(), s.getSalary()))
+            .sorted()
+            .toArray();
+
+        final Map<String, List<Integer>> members = deptEmps
+            .collect(groupingBy(DeptEmp::getDeptNo, mapping(DeptEmp::getEmpNo, toList())));
+
+        final Map<String, Partition> partitions = new HashMap<>();
+        members.forEach((deptNo, empNos) -> partitions.put(
+            deptNo,
+            Partition.merge(empNos.stream().mapToInt(Integer::intValue).sorted().toArray(), genders, salaries)
+        ));
+        return new ColumnarIndex(partitions);
+    }
+
+    /* Aggregates the same dashboard as DataModel.computeDashboard */
+    public DepartmentDashboard dashboard(Departments dept) {
+        final Partition partition = partitions.get(dept.getDeptNo());
+        if (partition == null) {
+            return DepartmentDashboard.EMPTY;
+        }
+
+        final long[] counts = new long[GENDERS.length];
+        final long[][] histogram = new long[GENDERS.length][partition.maxSalary / DataModel.SALARY_BUCKET_SIZE + 1];
+        long salarySum = 0;
+
+        Metrics.rows("dashboard", dept.getDeptNo(), partition.members, partition.salaries.length);
+
+        final int[] salaries = partition.salaries;
+        final byte[] genders = partition.genders;
+        for (int i = 0; i < salaries.length; i++) {
+            final int gender = genders[i];
+            counts[gender]++;
+            histogram[gender][salaries[i] / DataModel.SALARY_BUCKET_SIZE]++;
+            salarySum += salaries[i];
+        }
+
+        return DepartmentDashboard.of(counts, histogram, salarySum);
+    }
+
+    /* Writes the index in the format read by read(ByteBuffer) */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(partitions.size());
+        for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+            final Partition partition = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeInt(partition.members);
+            out.writeInt(partition.maxSalary);
+            out.writeInt(partition.salaries.length);
+            for (int empNo : partition.empNos) {
+                out.writeInt(empNo);
+            }
+            for (int salary : partition.salaries) {
+                out.writeInt(salary);
+            }
+            out.write(partition.genders);
+        }
+    }
+
+    /* Reads an index written by write(DataOutputStream), the columns are copied out of the buffer */
+    static ColumnarIndex read(ByteBuffer in) {
+        final int size = in.getInt();
+        final Map<String, Partition> partitions = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            final String deptNo = readUTF(in);
+            final int members = in.getInt();
+            final int maxSalary = in.getInt();
+            final int rows = in.getInt();
+            final int[] empNos = new int[rows];
+            final int[] salaries = new int[rows];
+            final byte[] genders = new byte[rows];
+            in.asIntBuffer().get(empNos);
+            in.position(in.position() + rows * Integer.BYTES);
+            in.asIntBuffer().get(salaries);
+            in.position(in.position() + rows * Integer.BYTES);
+            in.get(genders);
+            partitions.put(deptNo, new Partition(members, empNos, salaries, genders, maxSalary));
+        }
+        return new ColumnarIndex(partitions);
+    }
+
+    /* Reads a string written with DataOutput.writeUTF, only ASCII is expected */
+    static String readUTF(ByteBuffer in) {
+        final byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* Number of joined rows in the department */
+    public int size(String deptNo) {
+        final Partition partition = partitions.get(deptNo);
+        return partition == null ? 0 : partition.salaries.length;
+    }
+
+    /* Number of current dept_emp rows of the department */
+    int members(String deptNo) {
+        final Partition partition = partitions.get(deptNo);
+        return partition == null ? 0 : partition.members;
+    }
+
+    private static long pack(int empNo, int value) {
+        return ((long) empNo << 32) | (value & 0xFFFF_FFFFL);
+    }
+
+    private static int empNo(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int value(long packed) {
+        return (int) packed;
+    }
+
+    /* The joined rows of one department as parallel arrays */
+    private static final class Partition {
+
+        private final int members;
+        private final int[] empNos;
+        private final int[] salaries;
+        private final byte[] genders;
+        private final int maxSalary;
+
+        private Partition(int members, int[] empNos, int[] salaries, byte[] genders, int maxSalary) {
+            this.members = members;
+            this.empNos = empNos;
+            this.salaries = salaries;
+            this.genders = genders;
+            this.maxSalary = maxSalary;
+        }
+
+        /* Inner joins the sorted department members with the sorted (emp_no, value) pairs */
+        private static Partition merge(int[] members, long[] genders, long[] salaries) {
+            int rows = 0;
+            int[] empNoColumn = new int[members.length];
+            int[] salaryColumn = new int[members.length];
+            byte[] genderColumn = new byte[members.length];
+            int maxSalary = 0;
+
+            int g = 0, s = 0;
+            for (int empNo : members) {
+                while (g < genders.length && empNo(genders[g]) < empNo) {
+                    g++;
+                }
+                while (s < salaries.length && empNo(salaries[s]) < empNo) {
+                    s++;
+                }
+                if (g == genders.length || empNo(genders[g]) != empNo) {
+                    continue;
+                }
+                // An employee may have more than one salary valid at the current date
+                for (; s < salaries.length && empNo(salaries[s]) == empNo; s++) {
+                    if (rows == salaryColumn.length) {
+                        empNoColumn = Arrays.copyOf(empNoColumn, rows * 2);
+                        salaryColumn = Arrays.copyOf(salaryColumn, rows * 2);
+                        genderColumn = Arrays.copyOf(genderColumn, rows * 2);
+                    }
+                    empNoColumn[rows] = empNo;
+                    salaryColumn[rows] = value(salaries[s]);
+                    genderColumn[rows] = (byte) value(genders[g]);
+                    maxSalary = Math.max(maxSalary, salaryColumn[rows]);
+                    rows++;
+                }
+            }
+            return new Partition(
+                members.length,
+                Arrays.copyOf(empNoColumn, rows),
+                Arrays.copyOf(salaryColumn, rows),
+                Arrays.copyOf(genderColumn, rows),
+                maxSalary
+            );
+        }
+    }
+}
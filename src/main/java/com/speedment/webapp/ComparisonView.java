@@ -0,0 +1,108 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.employees.Employees;
+import com.vaadin.addon.charts.Chart;
+import com.vaadin.addon.charts.model.*;
+import com.vaadin.ui.VerticalLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows headcount, average salary and salary distribution of all departments side by side.
+ * The dashboards are computed for all departments in one grouped pass, see
+ * {@link DataModel#compareDepartments()}.
+ */
+public final class ComparisonView extends VerticalLayout {
+
+    /* Salary bucket level used for the distributions, coarse enough to keep all departments readable */
+    private static final int SALARY_LEVEL = 2;
+
+    private final Chart headcountChart, salaryChart, distributionChart;
+
+    public ComparisonView() {
+        setSizeFull();
+
+        /* Column chart with the number of employees of each gender in each department */
+        headcountChart = new Chart(ChartType.COLUMN);
+        headcountChart.setHeight(100, Unit.PERCENTAGE);
+        headcountChart.getConfiguration().setTitle("Headcount by Department");
+        YAxis y1 = new YAxis();
+        y1.setTitle("Number of employees");
+        headcountChart.getConfiguration().addyAxis(y1);
+
+        /* Column chart with the average salary of each department */
+        salaryChart = new Chart(ChartType.COLUMN);
+        salaryChart.setHeight(100, Unit.PERCENTAGE);
+        salaryChart.getConfiguration().setTitle("Average Salary by Department");
+        salaryChart.getConfiguration().getLegend().setEnabled(false);
+        YAxis y2 = new YAxis();
+        y2.setTitle("Salary in $");
+        salaryChart.getConfiguration().addyAxis(y2);
+
+        /* One salary distribution series for each department */
+        distributionChart = new Chart(ChartType.SPLINE);
+        distributionChart.setHeight(100, Unit.PERCENTAGE);
+        distributionChart.getConfiguration().setTitle("Salary Distribution by Department");
+        PlotOptionsSpline plotOptions = new PlotOptionsSpline();
+        plotOptions.setAnimation(false);
+        plotOptions.setMarker(new Marker(false));
+        distributionChart.getConfiguration().setPlotOptions(plotOptions);
+        XAxis x3 = new XAxis();
+        x3.setTitle("Salary in $");
+        distributionChart.getConfiguration().addxAxis(x3);
+        YAxis y3 = new YAxis();
+        y3.setTitle("Number of employees");
+        distributionChart.getConfiguration().addyAxis(y3);
+
+        addComponents(headcountChart, salaryChart, distributionChart);
+    }
+
+    /* Redraws all charts, must be called with the session lock held */
+    public void show(Map<Departments, DepartmentDashboard> dashboards) {
+        final String[] names = dashboards.keySet().stream()
+            .map(Departments::getDeptName)
+            .toArray(String[]::new);
+
+        final ListSeries male = new ListSeries("Male");
+        final ListSeries female = new ListSeries("Female");
+        final ListSeries average = new ListSeries("Average salary");
+        final List<Series> distributions = new ArrayList<>();
+
+        dashboards.forEach((dept, dashboard) -> {
+            male.addData(dashboard.getGenderCounts().getOrDefault(Employees.Gender.M, 0L));
+            female.addData(dashboard.getGenderCounts().getOrDefault(Employees.Gender.F, 0L));
+            average.addData((int) dashboard.getAverageSalary());
+            distributions.add(distribution(dept, dashboard));
+        });
+
+        headcountChart.getConfiguration().getxAxis().setCategories(names);
+        headcountChart.getConfiguration().setSeries(male, female);
+        headcountChart.drawChart();
+
+        salaryChart.getConfiguration().getxAxis().setCategories(names);
+        salaryChart.getConfiguration().setSeries(average);
+        salaryChart.drawChart();
+
+        distributionChart.getConfiguration().setSeries(distributions);
+        distributionChart.drawChart();
+    }
+
+    /* Both genders added together, the buckets are sorted on salary already */
+    private static DataSeries distribution(Departments dept, DepartmentDashboard dashboard) {
+        final int bucketSize = SalaryHistogram.bucketSize(SALARY_LEVEL);
+        final long[] male = dashboard.getSalaryHistogram(Employees.Gender.M).counts(SALARY_LEVEL, 0, Integer.MAX_VALUE);
+        final long[] female = dashboard.getSalaryHistogram(Employees.Gender.F).counts(SALARY_LEVEL, 0, Integer.MAX_VALUE);
+
+        final DataSeries series = new DataSeries(dept.getDeptName());
+        for (int i = 0; i < Math.max(male.length, female.length); i++) {
+            final long count = (i < male.length ? male[i] : 0) + (i < female.length ? female[i] : 0);
+            if (count != 0) {
+                series.add(new DataSeriesItem(i * bucketSize, count));
+            }
+        }
+        return series;
+    }
+}
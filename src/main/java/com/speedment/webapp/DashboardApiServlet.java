@@ -0,0 +1,176 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.employees.Employees;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Read-only JSON API for the dashboards.
+ * <ul>
+ *     <li>{@code /api/departments} lists the departments</li>
+ *     <li>{@code /api/departments/d005?level=1} returns gender counts, average and percentile salaries and the
+ *     salary histogram at the given resolution level for one department, {@code asOf=2000-12-31}
+ *     returns the department as it looked on that date</li>
+ * </ul>
+ * Responses carry an ETag derived from the snapshot they were computed from, so a repeated request
+ * is answered with 304 Not Modified until the next reload and can be cached by a reverse proxy.
+ */
+@WebServlet(urlPatterns = "/api/*", name = "DashboardApiServlet")
+public class DashboardApiServlet extends HttpServlet {
+
+    /* Seconds a cache may serve a response without revalidating it, 0 revalidates every request */
+    private static final int MAX_AGE_SECONDS = Integer.getInteger("employees.api.maxAgeSeconds", 0);
+
+    private static final String DEPARTMENTS = "/departments";
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final String path = Optional.ofNullable(req.getPathInfo()).orElse("/");
+        final DashboardSnapshot snapshot = DataModel.snapshot();
+
+        if (DEPARTMENTS.equals(path)) {
+            if (notModified(req, resp, etag(snapshot, "departments"))) {
+                return;
+            }
+            respond(resp, departments(snapshot));
+            return;
+        }
+
+        if (path.startsWith(DEPARTMENTS + '/')) {
+            final String deptNo = path.substring(DEPARTMENTS.length() + 1);
+            final Optional<Departments> dept = snapshot.departments().stream()
+                .filter(d -> d.getDeptNo().equals(deptNo))
+                .findFirst();
+            if (!dept.isPresent()) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No such department: " + deptNo);
+                return;
+            }
+            final int level;
+            try {
+                level = Integer.parseInt(Optional.ofNullable(req.getParameter("level")).orElse("0"));
+            } catch (NumberFormatException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "level must be a number");
+                return;
+            }
+            if (level < 0 || level >= SalaryHistogram.LEVELS) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "level must be between 0 and " + (SalaryHistogram.LEVELS - 1));
+                return;
+            }
+            final LocalDate asOf;
+            try {
+                asOf = req.getParameter("asOf") == null ? null : LocalDate.parse(req.getParameter("asOf"));
+            } catch (DateTimeParseException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "asOf must be a date like 2000-12-31");
+                return;
+            }
+            if (notModified(req, resp, etag(snapshot, deptNo + '-' + level + (asOf == null ? "" : "-" + asOf)))) {
+                return;
+            }
+            // Served from the same snapshot as the ETag, a reload in between must not change the body
+            final DepartmentDashboard dashboard = asOf != null
+                ? DataModel.dashboard(snapshot, dept.get(), asOf)
+                : DataModel.dashboard(snapshot, dept.get());
+            respond(resp, dashboard(dept.get(), dashboard, level));
+            return;
+        }
+
+        resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    /*
+     * The snapshot version restarts with the JVM, so the creation time is included to keep
+     * tags from an earlier process from matching.
+     */
+    private static String etag(DashboardSnapshot snapshot, String resource) {
+        return String.format("\"%s-%d-%s\"", Long.toString(snapshot.getCreatedMillis(), 36), snapshot.getVersion(), resource);
+    }
+
+    /* Sets the caching headers and answers with 304 if the client already has the current representation */
+    private static boolean notModified(HttpServletRequest req, HttpServletResponse resp, String etag) {
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", MAX_AGE_SECONDS > 0
+            ? "public, max-age=" + MAX_AGE_SECONDS
+            : "public, no-cache"
+        );
+        final String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void respond(HttpServletResponse resp, CharSequence json) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        try (PrintWriter out = resp.getWriter()) {
+            out.append(json).append('\n');
+        }
+    }
+
+    private static StringBuilder departments(DashboardSnapshot snapshot) {
+        final StringBuilder json = new StringBuilder("[");
+        for (Departments dept : snapshot.departments()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"dept_no\":");
+            ExportServlet.jsonText(json, dept.getDeptNo()).append(",\"dept_name\":");
+            ExportServlet.jsonText(json, dept.getDeptName()).append('}');
+        }
+        return json.append(']');
+    }
+
+    private static StringBuilder dashboard(Departments dept, DepartmentDashboard dashboard, int level) {
+        final StringBuilder json = new StringBuilder("{\"dept_no\":");
+        ExportServlet.jsonText(json, dept.getDeptNo()).append(",\"dept_name\":");
+        ExportServlet.jsonText(json, dept.getDeptName())
+            .append(",\"employee_count\":").append(dashboard.getEmployeeCount())
+            .append(",\"average_salary\":").append(String.format(Locale.ROOT, "%.2f", dashboard.getAverageSalary()))
+            .append(",\"salary_percentiles\":{")
+            .append("\"p50\":").append(String.format(Locale.ROOT, "%.0f", dashboard.getSalaryPercentile(0.5)))
+            .append(",\"p90\":").append(String.format(Locale.ROOT, "%.0f", dashboard.getSalaryPercentile(0.9)))
+            .append(",\"p99\":").append(String.format(Locale.ROOT, "%.0f", dashboard.getSalaryPercentile(0.99)))
+            .append("},\"gender_counts\":{");
+
+        String separator = "";
+        for (Employees.Gender gender : Employees.Gender.values()) {
+            json.append(separator).append('"').append(gender).append("\":")
+                .append(dashboard.getGenderCounts().getOrDefault(gender, 0L));
+            separator = ",";
+        }
+
+        /* Salary lower bound and number of employees for every non-empty bucket */
+        final int bucketSize = SalaryHistogram.bucketSize(level);
+        json.append("},\"salary_histogram\":{\"bucket_size\":").append(bucketSize);
+        for (Employees.Gender gender : Employees.Gender.values()) {
+            final long[] counts = dashboard.getSalaryHistogram(gender).counts(level, 0, Integer.MAX_VALUE);
+            json.append(",\"").append(gender).append("\":[");
+            separator = "";
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    json.append(separator).append('[').append((long) i * bucketSize).append(',').append(counts[i]).append(']');
+                    separator = ",";
+                }
+            }
+            json.append(']');
+        }
+        return json.append("}}");
+    }
+}
@@ -0,0 +1,85 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Precomputed dashboards for every department, built once for each loaded
+ * DataStore snapshot. Instances are immutable and shared by all sessions.
+ */
+public final class DashboardSnapshot {
+
+    private final long version;
+    private final LocalDate currentDate;
+    private final long createdMillis;
+    private final List<Departments> departments;
+    private final Map<String, DepartmentDashboard> dashboards;
+    private final ColumnarIndex columnarIndex;
+
+    private DashboardSnapshot(long version,
+                              LocalDate currentDate,
+                              List<Departments> departments,
+                              Map<String, DepartmentDashboard> dashboards,
+                              ColumnarIndex columnarIndex) {
+        this.version = version;
+        this.currentDate = requireNonNull(currentDate);
+        this.createdMillis = System.currentTimeMillis();
+        this.departments = Collections.unmodifiableList(new ArrayList<>(departments));
+        this.dashboards = Collections.unmodifiableMap(dashboards);
+        this.columnarIndex = columnarIndex;
+    }
+
+    static DashboardSnapshot build(long version,
+                                   LocalDate currentDate,
+                                   List<Departments> departments,
+                                   Function<Departments, DepartmentDashboard> aggregator,
+                                   ColumnarIndex columnarIndex) {
+
+        final Map<String, DepartmentDashboard> dashboards = new LinkedHashMap<>();
+        for (Departments dept : departments) {
+            dashboards.put(dept.getDeptNo(), requireNonNull(aggregator.apply(dept)));
+        }
+        return new DashboardSnapshot(version, currentDate, departments, dashboards, columnarIndex);
+    }
+
+    /* Version of the DataStore snapshot the aggregates were computed from */
+    public long getVersion() {
+        return version;
+    }
+
+    /* Date used to filter out historic salaries, advanced on every reload */
+    public LocalDate getCurrentDate() {
+        return currentDate;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public List<Departments> departments() {
+        return departments;
+    }
+
+    /* The columnar index the aggregates were computed from, if the columnar engine is enabled */
+    public Optional<ColumnarIndex> columnarIndex() {
+        return Optional.ofNullable(columnarIndex);
+    }
+
+    public Optional<DepartmentDashboard> get(String deptNo) {
+        return Optional.ofNullable(dashboards.get(deptNo));
+    }
+
+    public Map<String, DepartmentDashboard> dashboards() {
+        return dashboards;
+    }
+}
@@ -2,7 +2,6 @@ package com.speedment.webapp;
 
 import com.company.employees.EmployeesApplicationBuilder;
 import com.company.employees.employees.employees.departments.Departments;
-import com.company.employees.employees.employees.departments.DepartmentsManager;
 import com.company.employees.employees.employees.dept_emp.DeptEmp;
 import com.company.employees.employees.employees.dept_emp.DeptEmpManager;
 import com.company.employees.employees.employees.employees.Employees;
@@ -19,29 +18,69 @@ import com.speedment.runtime.core.Speedment;
 import com.speedment.runtime.join.Join;
 import com.speedment.runtime.join.JoinComponent;
 
+import java.io.UncheckedIOException;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.counting;
 import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.reducing;
+import static java.util.stream.Collectors.toList;
 
 public final class DataModel {
 
     private static Speedment speedment;
-    /* Date to allow filtering out current salaries */
-    private static Date currentDate;
-
-    /* Adjusts the size of the salary buckets, 1000 gives salary x-values of $ X k. */
-    private static final int SALARY_BUCKET_SIZE = 1000;
+    /* The current snapshot and the query caches built for it, replaced as one when a snapshot is published */
+    private static volatile Generation generation;
+    private static final AtomicLong snapshotVersion = new AtomicLong();
+    private static SyntheticSource syntheticSource; // Guarded by DataModel.class
+    /* Shares in-flight queries between sessions asking for the same department and snapshot version */
+    private static final SingleFlight<String, Object> inFlight = new SingleFlight<>();
+    /* Validity range index for historical dashboards */
+    private static final SnapshotIndex<AsOfIndex> asOfIndex = new SnapshotIndex<>(current -> {
+        final DataSource source = source();
+        return AsOfIndex.build(source.deptEmps(), source.employees(), source.salaries());
+    });
+    /* Name and top earner index */
+    private static final SnapshotIndex<EmployeeIndex> employeeIndex = new SnapshotIndex<>(current -> {
+        final Date currentDate = Date.valueOf(current.getCurrentDate());
+        final DataSource source = source();
+        return EmployeeIndex.build(
+            source.employees(),
+            source.deptEmps(),
+            source.salaries().filter(Salaries.TO_DATE.greaterOrEqual(currentDate)),
+            currentDate
+        );
+    });
+    /* Generated data only, partitions for another date than the current one, see partitions(Generation, Date) */
+    private static volatile DepartmentPartitions earlierPartitions;
+
+    /* Adjusts the size of the finest salary buckets, 1000 gives salary x-values of $ X k. */
+    static final int SALARY_BUCKET_SIZE = Integer.getInteger("employees.salary.bucket", 1000);
 
     private DataModel() {
     }
 
     public static synchronized Speedment speedment() {
         if (speedment == null) {
+            if (SyntheticSource.isEnabled()) {
+                throw new IllegalStateException("There is no database with " + SyntheticSource.SOURCE_PROPERTY + "=synthetic");
+            }
             speedment = new EmployeesApplicationBuilder()
                 .withUsername("") // User need to match database
                 .withPassword("") // Password need to match database
@@ -52,24 +91,336 @@ public final class DataModel {
                 .withParam("db.mysql.binaryCollationName", "utf8mb4_bin")*/
                 .build();
 
+            final long start = System.nanoTime();
+
             // Load a snapshot of the database into off-heap JVM-memoory
             speedment.get(DataStoreComponent.class).ifPresent(DataStoreComponent::load);
 
-            currentDate = java.sql.Date.valueOf(LocalDate.now()); // The date allows filtering out current salaries
+            // Aggregate every department once so that selections become plain lookups
+            publish(buildSnapshot(LocalDate.now())); // The date allows filtering out current salaries
+
+            Metrics.snapshotLoaded(System.nanoTime() - start);
+
+            SnapshotReloader.start(DataModel::reload);
         }
         return speedment;
     }
 
+    /*
+     * Reloads the DataStore and advances the current date. The new generation is loaded next to the
+     * live one and swapped in atomically, streams already running keep reading the old generation.
+     */
+    static void reload() {
+        if (SyntheticSource.isEnabled()) {
+            publish(buildSnapshot(LocalDate.now())); // Only the date moves on
+            return;
+        }
+        if (!isLoaded()) {
+            speedment(); // The snapshot was restored from file, so there is no DataStore to reload yet
+            return;
+        }
+        final Speedment app = speedment();
+        final LocalDate today = LocalDate.now();
+        final long start = System.nanoTime();
+        app.get(DataStoreComponent.class).ifPresent(DataStoreComponent::reload);
+        publish(buildSnapshot(today));
+        Metrics.snapshotLoaded(System.nanoTime() - start);
+    }
+
+    static synchronized boolean isLoaded() {
+        return speedment != null;
+    }
+
+    /* Generated tables if the synthetic source is enabled, otherwise the DataStore */
+    static DataSource source() {
+        if (SyntheticSource.isEnabled()) {
+            synchronized (DataModel.class) {
+                if (syntheticSource == null) {
+                    syntheticSource = new SyntheticSource();
+                }
+                return syntheticSource;
+            }
+        }
+        return DataSource.of(speedment());
+    }
+
+    /* Builds the next snapshot and its caches next to the live ones, the queries only see them once they are published */
+    private static Generation buildSnapshot(LocalDate currentDate) {
+        final Date filterDate = Date.valueOf(currentDate);
+        final List<Departments> departments = source().departments().collect(toList());
+        final boolean columnar = ColumnarIndex.isEnabled();
+        // There is no DataStore to join generated data in, so it goes through the partitioned join
+        final boolean partitioned = DepartmentPartitions.isEnabled() || SyntheticSource.isEnabled();
+
+        // The snapshot file stores the columnar projection
+        final ColumnarIndex index = columnar || (SnapshotFile.isEnabled() && !SyntheticSource.isEnabled())
+            ? buildColumnarIndex(filterDate)
+            : null;
+        final DepartmentPartitions partitions = partitioned ? DepartmentPartitions.build(currentDate, source()) : null;
+        final Generation next = new Generation(partitions, countDeptEmpRows(departments, partitions, index, filterDate));
+
+        if (columnar) {
+            next.snapshot = DashboardSnapshot.build(snapshotVersion.incrementAndGet(), currentDate, departments, index::dashboard, index);
+            return next;
+        }
+
+        // One grouped pass for all departments instead of one join per department
+        final Map<String, DepartmentDashboard> dashboards = computeAllDashboards(next, filterDate);
+        next.snapshot = DashboardSnapshot.build(
+            snapshotVersion.incrementAndGet(),
+            currentDate,
+            departments,
+            dept -> dashboards.getOrDefault(dept.getDeptNo(), DepartmentDashboard.EMPTY),
+            index
+        );
+        return next;
+    }
+
+    private static void publish(Generation next) {
+        generation = next;
+        if (SnapshotFile.isEnabled() && !SyntheticSource.isEnabled()) { // Generated data must never be served as real data
+            try {
+                SnapshotFile.write(next.snapshot);
+            } catch (UncheckedIOException e) {
+                System.err.format("Could not persist the snapshot: %s%n", e);
+            }
+        }
+    }
+
+    /* Current dept_emp rows of each department, taken from the partitions or the index if either was built */
+    private static Map<String, Long> countDeptEmpRows(List<Departments> departments,
+                                                      DepartmentPartitions partitions,
+                                                      ColumnarIndex index,
+                                                      Date currentDate) {
+        if (partitions == null && index == null) {
+            return source().deptEmps()
+                .filter(DeptEmp.TO_DATE.greaterOrEqual(currentDate))
+                .collect(groupingBy(DeptEmp::getDeptNo, counting()));
+        }
+        final Map<String, Long> rows = new HashMap<>();
+        departments.forEach(dept -> rows.put(dept.getDeptNo(), (long) (partitions != null
+            ? partitions.size(dept.getDeptNo())
+            : index.members(dept.getDeptNo()))
+        ));
+        return rows;
+    }
+
+    private static ColumnarIndex buildColumnarIndex(Date currentDate) {
+        final DataSource source = source();
+        return ColumnarIndex.build(
+            source.deptEmps().filter(DeptEmp.TO_DATE.greaterOrEqual(currentDate)),
+            source.employees(),
+            source.salaries().filter(Salaries.TO_DATE.greaterOrEqual(currentDate))
+        );
+    }
+
+    /* Returns the current snapshot, restoring it from the snapshot file or loading the DataStore on first use */
+    public static DashboardSnapshot snapshot() {
+        return generation().snapshot;
+    }
+
+    private static Generation generation() {
+        final Generation current = generation;
+        return current != null ? current : initialize();
+    }
+
+    private static synchronized Generation initialize() {
+        if (generation == null && SnapshotFile.isEnabled() && !SyntheticSource.isEnabled()) {
+            final long start = System.nanoTime();
+            SnapshotFile.read(snapshotVersion.incrementAndGet()).ifPresent(restored -> {
+                // Joins wait for the DataStore, the file always holds the columnar index
+                final Generation next = new Generation(null, restored.columnarIndex()
+                    .map(index -> countDeptEmpRows(restored.departments(), null, index, null))
+                    .orElse(Collections.emptyMap()));
+                next.snapshot = restored;
+                generation = next;
+                Metrics.snapshotLoaded(System.nanoTime() - start);
+                SnapshotReloader.start(DataModel::reload); // The first reload loads the DataStore
+            });
+        }
+        if (generation == null && SyntheticSource.isEnabled()) {
+            final long start = System.nanoTime();
+            publish(buildSnapshot(LocalDate.now()));
+            Metrics.snapshotLoaded(System.nanoTime() - start);
+            SnapshotReloader.start(DataModel::reload);
+        }
+        if (generation == null) {
+            speedment();
+        }
+        return generation;
+    }
+
+    /* The current snapshot without triggering a load, null if nothing is loaded yet */
+    static DashboardSnapshot currentSnapshot() {
+        final Generation current = generation;
+        return current == null ? null : current.snapshot;
+    }
+
     public static Stream<Departments> departments() {
-        DepartmentsManager departments = speedment().getOrThrow(DepartmentsManager.class);
-        return departments.stream();
+        return snapshot().departments().stream();
     }
 
-    public static Map<Employees.Gender, Long> countEmployees(Departments dept) {
+    /* Returns the precomputed dashboard for the department, the snapshot holds every department */
+    public static DepartmentDashboard dashboard(Departments dept) {
+        return dashboard(snapshot(), dept);
+    }
 
-        Join<DeptEmplEmployeesSalaries> join = joinDeptEmpSal(dept);
+    /* Same as above for the given snapshot, for callers that must answer from a snapshot they already hold */
+    static DepartmentDashboard dashboard(DashboardSnapshot current, Departments dept) {
+        return Metrics.time("dashboard", dept.getDeptNo(), () -> current.get(dept.getDeptNo()).orElse(DepartmentDashboard.EMPTY));
+    }
+
+    /*
+     * Computes the dashboard from the join instead of looking it up in the snapshot, for warm-up and load tests.
+     * Concurrent callers for the same department and snapshot share one computation.
+     */
+    static DepartmentDashboard computeDashboard(DashboardSnapshot current, Departments dept) {
+        return Metrics.time("computeDashboard", dept.getDeptNo(), () ->
+            coalesce(current, "computeDashboard", dept, DataModel::computeDashboard)
+        );
+    }
+
+    /* Returns the dashboards of all departments side by side, computed in one grouped pass when the snapshot was built */
+    public static Map<Departments, DepartmentDashboard> compareDepartments() {
+        return Metrics.time("compareDepartments", "all", () -> {
+            final Map<Departments, DepartmentDashboard> comparison = new LinkedHashMap<>();
+            departments().forEach(dept -> comparison.put(dept, dashboard(dept)));
+            return Collections.unmodifiableMap(comparison);
+        });
+    }
+
+    /*
+     * Streams the current rows of the join for the department, or for all departments if dept is null.
+     * The stream is sequential and lazy so that callers can write the rows out with constant memory.
+     */
+    public static Stream<DeptEmplEmployeesSalaries> joinedRows(Departments dept) {
+        final Generation current = generation();
+        final Date currentDate = Date.valueOf(current.snapshot.getCurrentDate());
+        return (dept == null ? allDeptEmpSal(current, currentDate) : deptEmpSal(current, dept, currentDate)).get().sequential();
+    }
+
+    /* Returns the dashboard for the department as it looked on the given date, counting only the members on that date, see AsOfIndex */
+    public static DepartmentDashboard dashboard(Departments dept, LocalDate asOf) {
+        return dashboard(snapshot(), dept, asOf);
+    }
+
+    static DepartmentDashboard dashboard(DashboardSnapshot current, Departments dept, LocalDate asOf) {
+        return dashboard(current, dept, asOf, () -> asOfIndex.get(current));
+    }
+
+    /* Same as above but empty instead of waiting while the index is built in the background, for UI updates */
+    public static Optional<DepartmentDashboard> findDashboard(Departments dept, LocalDate asOf) {
+        final DashboardSnapshot current = snapshot();
+        return asOfIndex.find(current).map(index -> dashboard(current, dept, asOf, () -> index));
+    }
+
+    private static DepartmentDashboard dashboard(DashboardSnapshot current, Departments dept, LocalDate asOf, Supplier<AsOfIndex> index) {
+        return Metrics.time("dashboardAsOf", dept.getDeptNo(), () -> {
+            final String key = "dashboardAsOf:" + dept.getDeptNo() + ':' + asOf + ':' + current.getVersion();
+            return (DepartmentDashboard) inFlight.get(key, () -> index.get().dashboard(dept.getDeptNo(), asOf));
+        });
+    }
+
+    /*
+     * Employees with a first or last name starting with the query, in the department or in all departments if dept is null.
+     * Never waits for the index, see EmployeeIndex.Hits.UNAVAILABLE.
+     */
+    public static EmployeeIndex.Hits searchEmployees(String query, Departments dept) {
+        return Metrics.time("searchEmployees", dept == null ? "all" : dept.getDeptNo(), () ->
+            employeeIndex.find(snapshot())
+                .map(index -> index.search(query, dept == null ? null : dept.getDeptNo()))
+                .orElse(EmployeeIndex.Hits.UNAVAILABLE)
+        );
+    }
+
+    /* Current members of the department, highest salary first. Never waits for the index either */
+    public static EmployeeIndex.Hits topEarners(Departments dept) {
+        return Metrics.time("topEarners", dept.getDeptNo(), () ->
+            employeeIndex.find(snapshot())
+                .map(index -> index.topEarners(dept.getDeptNo()))
+                .orElse(EmployeeIndex.Hits.UNAVAILABLE)
+        );
+    }
+
+    /* Waits for the index, building it if needed, for warm-up and benchmarks */
+    static EmployeeIndex employeeIndex(DashboardSnapshot current) {
+        return employeeIndex.get(current);
+    }
+
+    /* Runs the query unless an identical one for the same snapshot version is already running, then shares its result */
+    @SuppressWarnings("unchecked")
+    private static <T> T coalesce(DashboardSnapshot current, String query, Departments dept, BiFunction<Departments, Date, T> computation) {
+        final String key = query + ':' + dept.getDeptNo() + ':' + current.getVersion();
+        return (T) inFlight.get(key, () -> computation.apply(dept, Date.valueOf(current.getCurrentDate())));
+    }
+
+    static SingleFlight<String, Object> inFlight() {
+        return inFlight;
+    }
+
+    /* Computes gender counts, average salary and the salary distribution in a single pass over the join */
+    private static DepartmentDashboard computeDashboard(Departments dept, Date currentDate) {
+        final Generation current = generation();
+
+        Aggregator<DeptEmplEmployeesSalaries, ?, GenderIntervalStats> aggregator = dashboardAggregator();
+
+        try (Aggregation<GenderIntervalStats> aggregation = QueryExecutor.collect(
+            deptEmpSal(current, dept, currentDate),
+            aggregator.createCollector())) {
+
+            return toDashboard(current, "dashboard", dept.getDeptNo(), aggregation.stream().collect(toList()));
+        }
+    }
+
+    /* Computes the dashboards of all departments in a single pass over the join, grouped on dept_no */
+    private static Map<String, DepartmentDashboard> computeAllDashboards(Generation next, Date currentDate) {
+
+        Aggregator<DeptEmplEmployeesSalaries, ?, GenderIntervalStats> aggregator = departmentsAggregator();
+
+        try (Aggregation<GenderIntervalStats> aggregation = QueryExecutor.collect(
+            allDeptEmpSal(next, currentDate),
+            aggregator.createCollector())) {
+
+            final Map<String, List<GenderIntervalStats>> byDepartment = aggregation.stream()
+                .collect(groupingBy(GenderIntervalStats::getDeptNo, TreeMap::new, toList()));
+
+            final Map<String, DepartmentDashboard> dashboards = new LinkedHashMap<>();
+            byDepartment.forEach((deptNo, stats) -> dashboards.put(deptNo, toDashboard(next, "dashboard", deptNo, stats)));
+            return dashboards;
+        }
+    }
+
+    /* Derives totals and histograms from the per gender and salary bucket results */
+    private static DepartmentDashboard toDashboard(Generation current, String query, String deptNo, List<GenderIntervalStats> buckets) {
+        final Map<Employees.Gender, Long> counts = new EnumMap<>(Employees.Gender.class);
+        final Map<Employees.Gender, SortedMap<Integer, Long>> frequencies = new EnumMap<>(Employees.Gender.class);
+        double salarySum = 0;
+        long total = 0;
+
+        for (GenderIntervalStats stats : buckets) {
+            counts.merge(stats.getGender(), stats.getFrequency(), Long::sum);
+            frequencies.computeIfAbsent(stats.getGender(), g -> new TreeMap<>())
+                .merge(stats.getInterval(), stats.getFrequency(), Long::sum);
+            salarySum += stats.getAvgSalary() * stats.getFrequency();
+            total += stats.getFrequency();
+        }
+
+        recordRows(current, query, deptNo, total);
+        final Map<Employees.Gender, SalaryHistogram> histograms = new EnumMap<>(Employees.Gender.class);
+        frequencies.forEach((gender, intervals) -> histograms.put(gender, SalaryHistogram.of(intervals)));
 
-        Aggregator<DeptEmplEmployeesSalaries, ?, GenderCount> aggregator = Aggregator.builder(GenderCount::new)
+        return new DepartmentDashboard(counts, total == 0 ? 0 : salarySum / total, histograms);
+    }
+
+    /* Records the rows a join query started from and the rows that were left after filtering on date */
+    private static void recordRows(Generation current, String query, String deptNo, long filtered) {
+        Metrics.rows(query, deptNo, current.deptEmpRows.getOrDefault(deptNo, 0L), filtered);
+    }
+
+
+    /* Counts the number of employees for each gender */
+    static Aggregator<DeptEmplEmployeesSalaries, ?, GenderCount> countAggregator() {
+        return Aggregator.builder(GenderCount::new)
 
             .firstOn(DeptEmplEmployeesSalaries.employeesGetter())
                 .andThen(Employees.GENDER).key(GenderCount::setGender)
@@ -77,81 +428,140 @@ public final class DataModel {
             .count(GenderCount::setCount)
 
             .build();
+    }
 
-        try (Aggregation<GenderCount> aggregation = join.stream()
-            .parallel()
-            .collect(aggregator.createCollector())) {
-
-            return aggregation.stream()
-                .collect(
-                    groupingBy(GenderCount::getGender,
-                        reducing(
-                            0L,
-                            GenderCount::getCount,
-                            (a, b) -> a + b
-                        )
-                    )
-                );
-        }
+    /* Averages the current salaries */
+    static Aggregator<DeptEmplEmployeesSalaries, ?, AvgSalary> averageAggregator() {
+        return Aggregator.builder(AvgSalary::new)
+            .firstOn(DeptEmplEmployeesSalaries.salariesGetter())
+               .andThen(Salaries.SALARY).average(AvgSalary::setAvgSalary)
+            .build();
     }
 
+    /* Counts the number of employees for each gender and salary bucket */
+    static Aggregator<DeptEmplEmployeesSalaries, ?, GenderIntervalFrequency> frequencyAggregator() {
+        // Provide a constructor for the "result object"
+        return Aggregator.builder(GenderIntervalFrequency::new)
 
-    public static Double averageSalary(Departments dept) {
-        Join<DeptEmplEmployeesSalaries> join = joinDeptEmpSal(dept);
+            // Create a key on Gender
+            .firstOn(DeptEmplEmployeesSalaries.employeesGetter())
+            .andThen(Employees.GENDER)
+            .key(GenderIntervalFrequency::setGender)
 
-        Aggregator<DeptEmplEmployeesSalaries, ?, AvgSalary> aggregator = Aggregator.builder(AvgSalary::new)
+            // Create a key on salary divided by 1,000 as an integer
             .firstOn(DeptEmplEmployeesSalaries.salariesGetter())
-               .andThen(Salaries.SALARY).average(AvgSalary::setAvgSalary)
+            .andThen(Salaries.SALARY.divide(SALARY_BUCKET_SIZE).asInt())
+            .key(GenderIntervalFrequency::setInterval)
+
+            // For each unique set of keys, count the number of entitites
+            .count(GenderIntervalFrequency::setFrequency)
             .build();
+    }
 
-        try (Aggregation<AvgSalary> aggregation = join.stream()
-            .parallel()
-            .collect(aggregator.createCollector())) {
+    /* Counts and averages salaries for each gender and salary bucket, see computeDashboard */
+    static Aggregator<DeptEmplEmployeesSalaries, ?, GenderIntervalStats> dashboardAggregator() {
+        return Aggregator.builder(GenderIntervalStats::new)
 
-            return aggregation.stream()
-                .mapToDouble(AvgSalary::getAvgSalary)
-                .findFirst().orElse(0);
-        }
+            .firstOn(DeptEmplEmployeesSalaries.employeesGetter())
+            .andThen(Employees.GENDER)
+            .key(GenderIntervalStats::setGender)
+
+            .firstOn(DeptEmplEmployeesSalaries.salariesGetter())
+            .andThen(Salaries.SALARY.divide(SALARY_BUCKET_SIZE).asInt())
+            .key(GenderIntervalStats::setInterval)
+
+            // Count and average within each bucket, totals are derived from the buckets
+            .count(GenderIntervalStats::setFrequency)
+
+            .firstOn(DeptEmplEmployeesSalaries.salariesGetter())
+            .andThen(Salaries.SALARY)
+            .average(GenderIntervalStats::setAvgSalary)
+
+            .build();
     }
 
+    /* Same as dashboardAggregator but also keyed on the department */
+    static Aggregator<DeptEmplEmployeesSalaries, ?, GenderIntervalStats> departmentsAggregator() {
+        return Aggregator.builder(GenderIntervalStats::new)
 
+            .firstOn(DeptEmplEmployeesSalaries.deptEmpGetter())
+            .andThen(DeptEmp.DEPT_NO)
+            .key(GenderIntervalStats::setDeptNo)
 
-    public static Aggregation<GenderIntervalFrequency> freqAggregation(Departments dept) {
+            .firstOn(DeptEmplEmployeesSalaries.employeesGetter())
+            .andThen(Employees.GENDER)
+            .key(GenderIntervalStats::setGender)
 
-        Aggregator<DeptEmplEmployeesSalaries, ?, GenderIntervalFrequency> aggregator =
+            .firstOn(DeptEmplEmployeesSalaries.salariesGetter())
+            .andThen(Salaries.SALARY.divide(SALARY_BUCKET_SIZE).asInt())
+            .key(GenderIntervalStats::setInterval)
 
-            // Provide a constructor for the "result object"
-            Aggregator.builder(GenderIntervalFrequency::new)
+            .count(GenderIntervalStats::setFrequency)
 
-                // Create a key on Gender
-                .firstOn(DeptEmplEmployeesSalaries.employeesGetter())
-                .andThen(Employees.GENDER)
-                .key(GenderIntervalFrequency::setGender)
+            .firstOn(DeptEmplEmployeesSalaries.salariesGetter())
+            .andThen(Salaries.SALARY)
+            .average(GenderIntervalStats::setAvgSalary)
 
-                // Create a key on salary divided by 1,000 as an integer
-                .firstOn(DeptEmplEmployeesSalaries.salariesGetter())
-                .andThen(Salaries.SALARY.divide(SALARY_BUCKET_SIZE).asInt())
-                .key(GenderIntervalFrequency::setInterval)
+            .build();
+    }
 
-                // For each unique set of keys, count the number of entitites
-                .count(GenderIntervalFrequency::setFrequency)
-                .build();
+    /* Rows of the department from its partition if the partitioned join is enabled, otherwise from its cached join plan */
+    private static Supplier<Stream<DeptEmplEmployeesSalaries>> deptEmpSal(Generation current, Departments dept, Date currentDate) {
+        final DepartmentPartitions partitions = partitions(current, currentDate);
+        if (partitions != null) {
+            return () -> partitions.stream(dept.getDeptNo());
+        }
+        return joinDeptEmpSal(current, dept, currentDate)::stream;
+    }
 
+    private static Supplier<Stream<DeptEmplEmployeesSalaries>> allDeptEmpSal(Generation current, Date currentDate) {
+        final DepartmentPartitions partitions = partitions(current, currentDate);
+        if (partitions != null) {
+            return partitions::stream;
+        }
+        return joinAllDeptEmpSal(current, currentDate)::stream;
+    }
 
-        return joinDeptEmpSal(dept)
-            .stream()
-            .parallel()
-            .collect(aggregator.createCollector());
+    /*
+     * The partitions for the date, or null to use a Speedment join. Generated data has no DataStore to join
+     * in, so a caller still holding a snapshot from before the last reload gets partitions built for its date.
+     */
+    private static DepartmentPartitions partitions(Generation current, Date currentDate) {
+        final LocalDate date = currentDate.toLocalDate();
+        if (current.partitions != null && current.partitions.getCurrentDate().equals(date)) {
+            return current.partitions;
+        }
+        if (!SyntheticSource.isEnabled()) {
+            return null;
+        }
+        final DepartmentPartitions earlier = earlierPartitions;
+        if (earlier != null && earlier.getCurrentDate().equals(date)) {
+            return earlier;
+        }
+        return (DepartmentPartitions) inFlight.get("partitions:" + date, () -> {
+            final DepartmentPartitions built = DepartmentPartitions.build(date, source());
+            earlierPartitions = built;
+            return built;
+        });
+    }
 
+    /* The join plan of the department is built once for every snapshot and current date and then reused */
+    static Join<DeptEmplEmployeesSalaries> joinDeptEmpSal(Departments dept, Date currentDate) {
+        return joinDeptEmpSal(generation(), dept, currentDate);
     }
 
+    private static Join<DeptEmplEmployeesSalaries> joinDeptEmpSal(Generation current, Departments dept, Date currentDate) {
+        return current.joinPlans.computeIfAbsent(dept.getDeptNo() + ':' + currentDate, key -> buildJoinDeptEmpSal(dept, currentDate));
+    }
 
-    private static Join<DeptEmplEmployeesSalaries> joinDeptEmpSal(Departments dept) {
+    private static Join<DeptEmplEmployeesSalaries> buildJoinDeptEmpSal(Departments dept, Date currentDate) {
         JoinComponent jc = speedment().getOrThrow(JoinComponent.class);
 
         return jc.from(DeptEmpManager.IDENTIFIER)
                     // Only include data from the selected department
                     .where(DeptEmp.DEPT_NO.equal(dept.getDeptNo()))
+                    // Only include current members, the same rule as AsOfIndex
+                    .where(DeptEmp.TO_DATE.greaterOrEqual(currentDate))
 
                 // Join in Employees with Employees.EMP_NO equal DeptEmp.EMP_NO
                 .innerJoinOn(Employees.EMP_NO).equal(DeptEmp.EMP_NO)
@@ -164,8 +574,46 @@ public final class DataModel {
                 .build(DeptEmplEmployeesSalaries::new);
     }
 
+    /* Same join as joinDeptEmpSal but for all departments */
+    static Join<DeptEmplEmployeesSalaries> joinAllDeptEmpSal(Date currentDate) {
+        return joinAllDeptEmpSal(generation(), currentDate);
+    }
+
+    private static Join<DeptEmplEmployeesSalaries> joinAllDeptEmpSal(Generation current, Date currentDate) {
+        return current.joinPlans.computeIfAbsent("all:" + currentDate, key -> buildJoinAllDeptEmpSal(currentDate));
+    }
+
+    private static Join<DeptEmplEmployeesSalaries> buildJoinAllDeptEmpSal(Date currentDate) {
+        JoinComponent jc = speedment().getOrThrow(JoinComponent.class);
+
+        return jc.from(DeptEmpManager.IDENTIFIER)
+                    .where(DeptEmp.TO_DATE.greaterOrEqual(currentDate))
+                .innerJoinOn(Employees.EMP_NO).equal(DeptEmp.EMP_NO)
+                .innerJoinOn(Salaries.EMP_NO).equal(Employees.EMP_NO)
+                     .where(Salaries.TO_DATE.greaterOrEqual(currentDate))
+                .build(DeptEmplEmployeesSalaries::new);
+    }
+
+    /* A snapshot and the query caches that belong to it, built next to the live ones and published as one */
+    private static final class Generation {
+
+        /* The join prepared for the current date, null unless the partitioned join is enabled */
+        private final DepartmentPartitions partitions;
+        /* Join plans built once for each department and current date */
+        private final ConcurrentMap<String, Join<DeptEmplEmployeesSalaries>> joinPlans = new ConcurrentHashMap<>();
+        /* Number of current dept_emp rows for each department, for metrics */
+        private final Map<String, Long> deptEmpRows;
+        /* Set once the aggregates are computed, before the generation is published */
+        private DashboardSnapshot snapshot;
+
+        private Generation(DepartmentPartitions partitions, Map<String, Long> deptEmpRows) {
+            this.partitions = partitions;
+            this.deptEmpRows = Collections.unmodifiableMap(deptEmpRows);
+        }
+    }
+
     /* Class to represent the results of the average salary aggregation */
-    private final static class AvgSalary {
+    final static class AvgSalary {
 
         private double avgSalary;
 
@@ -178,7 +626,7 @@ public final class DataModel {
         }
     }
 
-    private final static class GenderCount {
+    final static class GenderCount {
 
         private Employees.Gender gender;
         private long count;
@@ -233,6 +681,57 @@ public final class DataModel {
     }
 
 
+    /* Class to represent the results of the fused dashboard aggregation */
+    final static class GenderIntervalStats {
+
+        private String deptNo;
+        private Employees.Gender gender;
+        private int interval;
+        private long frequency;
+        private double avgSalary;
+
+        private void setDeptNo(String deptNo) {
+            this.deptNo = requireNonNull(deptNo);
+        }
+
+        private void setGender(Employees.Gender gender) {
+            this.gender = requireNonNull(gender);
+        }
+
+        private void setInterval(int interval) {
+            this.interval = interval;
+        }
+
+        private void setFrequency(long frequency) {
+            this.frequency = frequency;
+        }
+
+        private void setAvgSalary(double avgSalary) {
+            this.avgSalary = avgSalary;
+        }
+
+        private String getDeptNo() {
+            return deptNo;
+        }
+
+        private Employees.Gender getGender() {
+            return gender;
+        }
+
+        private int getInterval() {
+            return interval;
+        }
+
+        private long getFrequency() {
+            return frequency;
+        }
+
+        private double getAvgSalary() {
+            return avgSalary;
+        }
+    }
+
+
     /* Class to represent the results of the salary distribution aggregation */
     public final static class DeptEmplEmployeesSalaries {
 
@@ -0,0 +1,53 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.departments.DepartmentsManager;
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.dept_emp.DeptEmpManager;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.employees.EmployeesManager;
+import com.company.employees.employees.employees.salaries.Salaries;
+import com.company.employees.employees.employees.salaries.SalariesManager;
+import com.speedment.runtime.core.Speedment;
+
+import java.util.stream.Stream;
+
+/**
+ * Tables the snapshot and the in-memory indexes are built from. Either the DataStore of the
+ * Speedment application or generated data, see {@link SyntheticSource}.
+ */
+interface DataSource {
+
+    Stream<Departments> departments();
+
+    Stream<DeptEmp> deptEmps();
+
+    Stream<Employees> employees();
+
+    Stream<Salaries> salaries();
+
+    /* Streams the tables from the managers of the application */
+    static DataSource of(Speedment app) {
+        return new DataSource() {
+            @Override
+            public Stream<Departments> departments() {
+                return app.getOrThrow(DepartmentsManager.class).stream();
+            }
+
+            @Override
+            public Stream<DeptEmp> deptEmps() {
+                return app.getOrThrow(DeptEmpManager.class).stream();
+            }
+
+            @Override
+            public Stream<Employees> employees() {
+                return app.getOrThrow(EmployeesManager.class).stream();
+            }
+
+            @Override
+            public Stream<Salaries> salaries() {
+                return app.getOrThrow(SalariesManager.class).stream();
+            }
+        };
+    }
+}
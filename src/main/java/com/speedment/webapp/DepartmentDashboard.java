@@ -0,0 +1,104 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.employees.Employees;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable result of the department dashboard aggregation. Holds the number of employees
+ * per gender, the average salary and the salary histogram for each gender for one department.
+ */
+public final class DepartmentDashboard {
+
+    /* Dashboard of a department without employees */
+    static final DepartmentDashboard EMPTY = new DepartmentDashboard(Collections.emptyMap(), 0, Collections.emptyMap());
+
+    private final Map<Employees.Gender, Long> genderCounts;
+    private final double averageSalary;
+    private final Map<Employees.Gender, SalaryHistogram> salaryHistograms;
+    /* All genders merged, used for percentiles of the whole department */
+    private final SalaryHistogram allSalaries;
+
+    DepartmentDashboard(Map<Employees.Gender, Long> genderCounts,
+                        double averageSalary,
+                        Map<Employees.Gender, SalaryHistogram> salaryHistograms) {
+
+        this.genderCounts = Collections.unmodifiableMap(copy(genderCounts));
+        this.averageSalary = averageSalary;
+        this.salaryHistograms = Collections.unmodifiableMap(copy(salaryHistograms));
+        this.allSalaries = SalaryHistogram.merge(this.salaryHistograms.values());
+    }
+
+    /*
+     * Assembles a dashboard from the number of salaries and the finest salary buckets of each gender,
+     * indexed on the ordinal of the gender, and the sum of all salaries.
+     */
+    static DepartmentDashboard of(long[] counts, long[][] buckets, long salarySum) {
+        final Employees.Gender[] genders = Employees.Gender.values();
+        final Map<Employees.Gender, Long> genderCounts = new EnumMap<>(Employees.Gender.class);
+        final Map<Employees.Gender, SalaryHistogram> histograms = new EnumMap<>(Employees.Gender.class);
+        long total = 0;
+        for (int g = 0; g < genders.length; g++) {
+            if (counts[g] != 0) {
+                genderCounts.put(genders[g], counts[g]);
+                histograms.put(genders[g], SalaryHistogram.of(buckets[g]));
+                total += counts[g];
+            }
+        }
+        return new DepartmentDashboard(genderCounts, total == 0 ? 0 : (double) salarySum / total, histograms);
+    }
+
+    /* Number of employees for each gender */
+    public Map<Employees.Gender, Long> getGenderCounts() {
+        return genderCounts;
+    }
+
+    public long getEmployeeCount() {
+        return genderCounts.values().stream().mapToLong(l -> l).sum();
+    }
+
+    public double getAverageSalary() {
+        return averageSalary;
+    }
+
+    /* Salary distribution at every resolution */
+    public SalaryHistogram getSalaryHistogram(Employees.Gender gender) {
+        return salaryHistograms.getOrDefault(gender, SalaryHistogram.empty());
+    }
+
+    /* Salary histogram of all genders together */
+    public SalaryHistogram getSalaryHistogram() {
+        return allSalaries;
+    }
+
+    /* Salary at the quantile, e.g. 0.5 for the median, accurate to one salary bucket */
+    public double getSalaryPercentile(double q) {
+        return allSalaries.quantile(q);
+    }
+
+    public double getSalaryPercentile(Employees.Gender gender, double q) {
+        return getSalaryHistogram(gender).quantile(q);
+    }
+
+    /* Salary interval (salary divided by the bucket size) to frequency, sorted on interval */
+    public SortedMap<Integer, Long> getSalaryFrequencies(Employees.Gender gender) {
+        return getSalaryHistogram(gender).frequencies();
+    }
+
+    /* EnumMap's copy constructor does not accept empty maps of other types */
+    private static <V> Map<Employees.Gender, V> copy(Map<Employees.Gender, V> map) {
+        final Map<Employees.Gender, V> copy = new EnumMap<>(Employees.Gender.class);
+        copy.putAll(requireNonNull(map));
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DepartmentDashboard{genderCounts=%s, averageSalary=%.2f}", genderCounts, averageSalary);
+    }
+}
@@ -0,0 +1,116 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.salaries.Salaries;
+import com.speedment.webapp.DataModel.DeptEmplEmployeesSalaries;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The department/employee/current salary join, prepared once for each current date instead of
+ * planned by a Speedment join on every query. The current dept_emp rows are partitioned on
+ * dept_no, and the employees and current salaries of the members are hashed on emp_no. A
+ * department is joined by streaming its own partition and probing the two hashes, so the cost
+ * is proportional to the size of the department instead of the size of dept_emp.
+ * <p>
+ * The rows hold the entities from the source, so every column is available to aggregations and
+ * exports. The price is that the entities of the current members stay on the heap until the
+ * next reload.
+ */
+final class DepartmentPartitions {
+
+    static final String JOIN_PROPERTY = "employees.join";
+
+    private final LocalDate currentDate;
+    /* Current dept_emp rows of each department and of all departments in dept_no order */
+    private final Map<String, List<DeptEmp>> departments;
+    private final List<DeptEmp> all;
+    private final Map<Integer, Employees> employees;
+    /* Usually one salary per employee, but a raise on the current date gives two */
+    private final Map<Integer, List<Salaries>> salaries;
+
+    private DepartmentPartitions(LocalDate currentDate,
+                                 Map<String, List<DeptEmp>> departments,
+                                 Map<Integer, Employees> employees,
+                                 Map<Integer, List<Salaries>> salaries) {
+        this.currentDate = requireNonNull(currentDate);
+        this.departments = Collections.unmodifiableMap(departments);
+        this.all = new ArrayList<>();
+        departments.keySet().stream().sorted().forEach(deptNo -> all.addAll(departments.get(deptNo)));
+        this.employees = Collections.unmodifiableMap(employees);
+        this.salaries = Collections.unmodifiableMap(salaries);
+    }
+
+    static boolean isEnabled() {
+        return "partitioned".equalsIgnoreCase(System.getProperty(JOIN_PROPERTY));
+    }
+
+    /* Partitions the current members and hashes their employees and the salaries valid on the current date */
+    static DepartmentPartitions build(LocalDate currentDate, DataSource source) {
+        final Date date = Date.valueOf(currentDate);
+
+        final Map<String, List<DeptEmp>> departments = new HashMap<>();
+        final Set<Integer> members = new HashSet<>();
+        source.deptEmps()
+            .filter(DeptEmp.TO_DATE.greaterOrEqual(date))
+            .forEachOrdered(de -> {
+                departments.computeIfAbsent(de.getDeptNo(), deptNo -> new ArrayList<>()).add(de);
+                members.add(de.getEmpNo());
+            });
+
+        // Only the employees and salaries of current members can be joined
+        final Map<Integer, Employees> employees = new HashMap<>();
+        source.employees()
+            .filter(e -> members.contains(e.getEmpNo()))
+            .forEachOrdered(e -> employees.put(e.getEmpNo(), e));
+
+        final Map<Integer, List<Salaries>> salaries = new HashMap<>();
+        source.salaries()
+            .filter(Salaries.TO_DATE.greaterOrEqual(date))
+            .filter(s -> members.contains(s.getEmpNo()))
+            .forEachOrdered(s -> salaries.computeIfAbsent(s.getEmpNo(), empNo -> new ArrayList<>(1)).add(s));
+
+        return new DepartmentPartitions(currentDate, departments, employees, salaries);
+    }
+
+    LocalDate getCurrentDate() {
+        return currentDate;
+    }
+
+    /* Number of current dept_emp rows of the department */
+    int size(String deptNo) {
+        return departments.getOrDefault(deptNo, Collections.emptyList()).size();
+    }
+
+    /* Joined rows of the department */
+    Stream<DeptEmplEmployeesSalaries> stream(String deptNo) {
+        return join(departments.getOrDefault(deptNo, Collections.emptyList()));
+    }
+
+    /* Joined rows of all departments, from one list so that a parallel stream splits evenly */
+    Stream<DeptEmplEmployeesSalaries> stream() {
+        return join(all);
+    }
+
+    private Stream<DeptEmplEmployeesSalaries> join(List<DeptEmp> deptEmps) {
+        return deptEmps.stream().flatMap(de -> {
+            final Employees employee = employees.get(de.getEmpNo());
+            final List<Salaries> current = employee == null ? null : salaries.get(de.getEmpNo());
+            return current == null
+                ? Stream.empty()
+                : current.stream().map(salary -> new DeptEmplEmployeesSalaries(de, employee, salary));
+        });
+    }
+}
@@ -0,0 +1,266 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.salaries.Salaries;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Search index over the employees with their current department and salary. Last and first
+ * names are kept in sorted arrays so that a name prefix is found with two binary searches,
+ * and the employees of each department are kept sorted on salary for top earner lists.
+ * Results are returned as {@link Hits} with a bounded number of employees, flagged as
+ * truncated if more matched. Hits do not refer
+ * back to the index, so a session holding on to a result does not keep an index of
+ * an earlier snapshot version alive.
+ */
+final class EmployeeIndex {
+
+    private static final Employees.Gender[] GENDERS = Employees.Gender.values();
+    private static final int[] NO_ROWS = new int[0];
+    static final int LIMIT = Integer.getInteger("employees.search.limit", 1000);
+
+    /* One row for each employee, sorted on emp_no */
+    private final int[] empNos;
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private final byte[] genders;
+    private final String[] deptNos;
+    private final int[] salaries;
+
+    /* Rows sorted on lower case last name and then first name, with the sorted keys */
+    private final int[] byLastName;
+    private final String[] lastNameKeys;
+    private final int[] byFirstName;
+    private final String[] firstNameKeys;
+
+    /* Rows of the current members of each department, highest salary first */
+    private final Map<String, int[]> bySalary;
+
+    private EmployeeIndex(int[] empNos, String[] firstNames, String[] lastNames, byte[] genders, String[] deptNos, int[] salaries) {
+        this.empNos = empNos;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.genders = genders;
+        this.deptNos = deptNos;
+        this.salaries = salaries;
+
+        final String[] lastKeys = keys(lastNames);
+        final String[] firstKeys = keys(firstNames);
+        this.byLastName = sortedRows(Comparator.<Integer, String>comparing(row -> lastKeys[row]).thenComparing(row -> firstKeys[row]));
+        this.lastNameKeys = Arrays.stream(byLastName).mapToObj(row -> lastKeys[row]).toArray(String[]::new);
+        this.byFirstName = sortedRows(Comparator.<Integer, String>comparing(row -> firstKeys[row]).thenComparing(row -> lastKeys[row]));
+        this.firstNameKeys = Arrays.stream(byFirstName).mapToObj(row -> firstKeys[row]).toArray(String[]::new);
+
+        final Map<String, int[]> bySalary = new HashMap<>();
+        IntStream.range(0, empNos.length)
+            .filter(row -> deptNos[row] != null)
+            .boxed()
+            .sorted(Comparator.<Integer>comparingInt(row -> salaries[row]).reversed())
+            .collect(groupingBy(row -> deptNos[row]))
+            .forEach((deptNo, rows) -> bySalary.put(deptNo, rows.stream().mapToInt(Integer::intValue).toArray()));
+        this.bySalary = Collections.unmodifiableMap(bySalary);
+    }
+
+    /* Builds the index from all employees, all dept_emp rows and the salaries valid on the current date */
+    static EmployeeIndex build(Stream<Employees> employees, Stream<DeptEmp> deptEmps, Stream<Salaries> currentSalaries, Date currentDate) {
+        final List<Employees> rows = new ArrayList<>();
+        employees.forEachOrdered(rows::add);
+        rows.sort(Comparator.comparingInt(Employees::getEmpNo));
+
+        final int size = rows.size();
+        final int[] empNos = new int[size];
+        final String[] firstNames = new String[size];
+        final String[] lastNames = new String[size];
+        final byte[] genders = new byte[size];
+        for (int i = 0; i < size; i++) {
+            final Employees e = rows.get(i);
+            empNos[i] = e.getEmpNo();
+            firstNames[i] = e.getFirstName();
+            lastNames[i] = e.getLastName();
+            genders[i] = (byte) e.getGender().ordinal();
+        }
+        rows.clear();
+
+        // The current department is the most recent one the employee is still a member of
+        final String[] deptNos = new String[size];
+        final long[] deptFrom = new long[size];
+        deptEmps
+            .filter(de -> !de.getToDate().before(currentDate))
+            .forEachOrdered(de -> {
+                final int row = Arrays.binarySearch(empNos, de.getEmpNo());
+                if (row >= 0 && (deptNos[row] == null || de.getFromDate().getTime() > deptFrom[row])) {
+                    deptNos[row] = de.getDeptNo();
+                    deptFrom[row] = de.getFromDate().getTime();
+                }
+            });
+
+        final int[] salaries = new int[size];
+        currentSalaries.forEachOrdered(s -> {
+            final int row = Arrays.binarySearch(empNos, s.getEmpNo());
+            if (row >= 0) {
+                salaries[row] = Math.max(salaries[row], s.getSalary());
+            }
+        });
+
+        return new EmployeeIndex(empNos, firstNames, lastNames, genders, deptNos, salaries);
+    }
+
+    /*
+     * Employees with a last or first name starting with the query, last name matches first, optionally
+     * only in one department. A query with two words, like "geo fac", matches the start of the first
+     * name and of the last name.
+     */
+    Hits search(String query, String deptNo) {
+        final String[] words = query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        if (words[0].isEmpty()) {
+            return Hits.EMPTY;
+        }
+        final String lastPrefix = words[words.length - 1];
+        final int lastFrom = SortedArrays.lowerBound(lastNameKeys, lastPrefix);
+        final int lastTo = SortedArrays.prefixEnd(lastNameKeys, lastPrefix);
+
+        if (words.length > 1) {
+            return hits(IntStream.range(lastFrom, lastTo)
+                .map(i -> byLastName[i])
+                .filter(row -> deptNo == null || deptNo.equals(deptNos[row]))
+                .filter(row -> firstNames[row].toLowerCase(Locale.ROOT).startsWith(words[0]))
+            );
+        }
+
+        final int firstFrom = SortedArrays.lowerBound(firstNameKeys, lastPrefix);
+        final int firstTo = SortedArrays.prefixEnd(firstNameKeys, lastPrefix);
+        return hits(IntStream.concat(
+                IntStream.range(lastFrom, lastTo).map(i -> byLastName[i]),
+                IntStream.range(firstFrom, firstTo)
+                    .map(i -> byFirstName[i])
+                    .filter(row -> !lastNames[row].toLowerCase(Locale.ROOT).startsWith(lastPrefix)) // Already a last name match
+            )
+            .filter(row -> deptNo == null || deptNo.equals(deptNos[row]))
+        );
+    }
+
+    /* Current members of the department, highest salary first */
+    Hits topEarners(String deptNo) {
+        return hits(Arrays.stream(bySalary.getOrDefault(deptNo, NO_ROWS)));
+    }
+
+    int size() {
+        return empNos.length;
+    }
+
+    /* Materializes the first rows so that the hits are independent of the index, one more row tells if there were more */
+    private Hits hits(IntStream rows) {
+        final List<Employee> employees = rows.limit(LIMIT + 1L)
+            .mapToObj(row -> new Employee(empNos[row], firstNames[row], lastNames[row], GENDERS[genders[row]], deptNos[row], salaries[row]))
+            .collect(toList());
+        final boolean truncated = employees.size() > LIMIT;
+        return new Hits(truncated ? employees.subList(0, LIMIT) : employees, true, truncated);
+    }
+
+    private static String[] keys(String[] names) {
+        return Arrays.stream(names).map(name -> name.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+    }
+
+    private int[] sortedRows(Comparator<Integer> comparator) {
+        return IntStream.range(0, empNos.length).boxed().sorted(comparator).mapToInt(Integer::intValue).toArray();
+    }
+
+    /* Result of a lookup, paged by the search grid */
+    static final class Hits {
+
+        static final Hits EMPTY = new Hits(Collections.emptyList(), true, false);
+        /* Returned instead of waiting while the index is being built */
+        static final Hits UNAVAILABLE = new Hits(Collections.emptyList(), false, false);
+
+        private final List<Employee> employees;
+        private final boolean available;
+        private final boolean truncated;
+
+        private Hits(List<Employee> employees, boolean available, boolean truncated) {
+            this.employees = Collections.unmodifiableList(employees);
+            this.available = available;
+            this.truncated = truncated;
+        }
+
+        /* False if there was no index to answer from yet */
+        boolean isAvailable() {
+            return available;
+        }
+
+        int count() {
+            return employees.size();
+        }
+
+        /* True if more employees matched than the employees.search.limit that were kept */
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        List<Employee> page(int offset, int limit) {
+            final int from = Math.min(offset, employees.size());
+            final int end = (int) Math.min(employees.size(), (long) offset + limit);
+            return employees.subList(from, end);
+        }
+    }
+
+    /* Row shown in the search grid */
+    public static final class Employee {
+
+        private final int empNo;
+        private final String firstName;
+        private final String lastName;
+        private final Employees.Gender gender;
+        private final String deptNo;
+        private final int salary;
+
+        private Employee(int empNo, String firstName, String lastName, Employees.Gender gender, String deptNo, int salary) {
+            this.empNo = empNo;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.gender = gender;
+            this.deptNo = deptNo;
+            this.salary = salary;
+        }
+
+        public int getEmpNo() {
+            return empNo;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public Employees.Gender getGender() {
+            return gender;
+        }
+
+        /* Current department, null if the employee has left */
+        public String getDeptNo() {
+            return deptNo;
+        }
+
+        /* Current salary, 0 if the employee has none */
+        public int getSalary() {
+            return salary;
+        }
+    }
+}
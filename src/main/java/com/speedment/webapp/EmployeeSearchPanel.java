@@ -0,0 +1,160 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.shared.ui.ValueChangeMode;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Notification;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Finds employees by name or lists the top earners of the selected department. The grid is fed
+ * by a lazy data provider that pages over the result of the latest index lookup.
+ * <p>
+ * Lookups run on {@link UiExecutor}. They never wait for the index, while it is being built
+ * after a start or a reload the panel says that search is not available yet. The panel stays
+ * disabled until the first result has arrived.
+ */
+public final class EmployeeSearchPanel extends VerticalLayout {
+
+    private final TextField search;
+    private final CheckBox selectedOnly;
+    private final Grid<EmployeeIndex.Employee> grid;
+    private final Label status;
+
+    private Departments dept;
+    /* Result of the latest lookup, paged by the grid */
+    private EmployeeIndex.Hits hits;
+
+    /* Lookup in progress for the latest query, guarded by the session lock */
+    private Future<?> pendingLookup;
+    private long lookupSequence;
+
+    public EmployeeSearchPanel() {
+        setWidth(100, Unit.PERCENTAGE);
+        setMargin(false);
+        setEnabled(false); // Until the employee index has answered
+
+        search = new TextField();
+        search.setPlaceholder("Search by name, e.g. \"geo fac\"");
+        search.setValueChangeMode(ValueChangeMode.LAZY);
+        search.addValueChangeListener(e -> refresh());
+
+        selectedOnly = new CheckBox("Selected department only", true);
+        selectedOnly.addValueChangeListener(e -> refresh());
+
+        /* Clearing the search falls back to the top earners */
+        final Button topEarners = new Button("Top earners", e -> {
+            if (search.isEmpty()) {
+                refresh();
+            } else {
+                search.clear();
+            }
+        });
+
+        grid = new Grid<>();
+        grid.setWidth(100, Unit.PERCENTAGE);
+        grid.setHeightByRows(10);
+        grid.addColumn(EmployeeIndex.Employee::getEmpNo).setCaption("Emp no").setSortable(false);
+        grid.addColumn(EmployeeIndex.Employee::getFirstName).setCaption("First name").setSortable(false);
+        grid.addColumn(EmployeeIndex.Employee::getLastName).setCaption("Last name").setSortable(false);
+        grid.addColumn(EmployeeIndex.Employee::getGender).setCaption("Gender").setSortable(false);
+        grid.addColumn(EmployeeIndex.Employee::getDeptNo).setCaption("Department").setSortable(false);
+        grid.addColumn(e -> format("$%,d", e.getSalary())).setCaption("Salary").setSortable(false);
+        grid.setDataProvider(DataProvider.fromCallbacks(
+            query -> hits == null
+                ? Stream.empty()
+                : hits.page(query.getOffset(), query.getLimit()).stream(),
+            query -> hits == null ? 0 : hits.count()
+        ));
+
+        status = new Label();
+        status.setVisible(false);
+
+        final HorizontalLayout controls = new HorizontalLayout(search, selectedOnly, topEarners);
+        addComponents(controls, status, grid);
+    }
+
+    /* Called when another department is selected */
+    public void setDepartment(Departments dept) {
+        this.dept = dept;
+        refresh();
+    }
+
+    @Override
+    public void attach() {
+        super.attach();
+        refresh(); // Lookups need the UI to push the result to
+    }
+
+    @Override
+    public void detach() {
+        if (pendingLookup != null) {
+            UiExecutor.cancel(pendingLookup);
+            pendingLookup = null;
+        }
+        super.detach();
+    }
+
+    /* Looks up the employees for the current query in the background, an empty query lists the top earners */
+    private void refresh() {
+        final UI ui = getUI();
+        if (ui == null) {
+            return; // Refreshed when attached
+        }
+        final Departments selected = dept;
+        if (search.isEmpty()) {
+            lookup(ui, () -> selected == null ? null : DataModel.topEarners(selected));
+        } else {
+            final String query = search.getValue();
+            final Departments scope = selectedOnly.getValue() ? selected : null;
+            lookup(ui, () -> DataModel.searchEmployees(query, scope));
+        }
+    }
+
+    private void lookup(UI ui, Supplier<EmployeeIndex.Hits> lookup) {
+        if (pendingLookup != null) {
+            UiExecutor.cancel(pendingLookup); // Superseded by the new query
+        }
+        final long sequence = ++lookupSequence;
+        try {
+            pendingLookup = UiExecutor.submit(ui, lookup, result -> {
+                if (sequence == lookupSequence) {
+                    pendingLookup = null;
+                    hits = result;
+                    setEnabled(true);
+                    showStatus(result);
+                    grid.getDataProvider().refreshAll();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingLookup = null;
+            Notification.show("The server is busy, please try again", Notification.Type.WARNING_MESSAGE);
+        }
+    }
+
+    /* Tells the user why the grid may be empty or incomplete, must be called with the session lock held */
+    private void showStatus(EmployeeIndex.Hits result) {
+        if (result != null && !result.isAvailable()) {
+            status.setValue("Search is not available yet, the employee index is being built. Please try again shortly.");
+        } else if (result != null && result.isTruncated()) {
+            status.setValue(format("Showing the first %,d matches, refine the search to see the rest", result.count()));
+        } else {
+            status.setValue("");
+        }
+        status.setVisible(!status.getValue().isEmpty());
+    }
+}
@@ -4,18 +4,23 @@ import javax.servlet.annotation.WebServlet;
 
 import com.company.employees.employees.employees.departments.Departments;
 import com.company.employees.employees.employees.employees.Employees;
-import com.speedment.common.benchmark.Stopwatch;
 import com.vaadin.addon.charts.Chart;
 import com.vaadin.addon.charts.ChartOptions;
 import com.vaadin.addon.charts.model.*;
+import com.vaadin.annotations.Push;
 import com.vaadin.annotations.Theme;
 import com.vaadin.annotations.VaadinServletConfiguration;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinServlet;
 import com.vaadin.ui.*;
+import com.vaadin.ui.Button;
 import com.vaadin.ui.Label;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
 
 import static com.company.employees.employees.employees.employees.generated.GeneratedEmployees.*;
 import static java.lang.String.format;
@@ -28,15 +33,43 @@ import static java.util.stream.Collectors.reducing;
  *
  * @Author julgus
  */
+@Push
 @Theme("mytheme")
 public class EmployeeUI extends UI {
 
     /* Instance variables */
-    private TextField noOfEmployees, averageSalary;
+    private TextField noOfEmployees, averageSalary, medianSalary, tailSalaries;
     private Chart genderChart, salaryChart;
     private ListSeries maleCount, femaleCount;
-    private DataSeries maleSalaryData, femaleSalaryData, maleCount2, femaleCount2;
-    private Configuration genderChartConfig, salaryChartConfig;
+    private VerticalLayout body;
+    /* Created the first time the comparison is shown */
+    private ComparisonView comparisonView;
+    private EmployeeSearchPanel searchPanel;
+
+    /* Salary buckets of the salary chart, updated point by point */
+    private BucketSeries maleSalaryBuckets, femaleSalaryBuckets;
+
+    /* The theme is never modified, so all sessions share one instance */
+    private static final ChartTheme CHART_THEME = new ChartTheme();
+
+    /* Chart animations are turned off unless enabled, which avoids client side rendering work on every update */
+    private static final boolean ANIMATION = Boolean.getBoolean("employees.chart.animation");
+
+    /* First year with data in the employees database */
+    private static final int FIRST_YEAR = 1985;
+
+    /* Selected department and date, asOf is null for the current date */
+    private Departments selectedDept;
+    private LocalDate asOf;
+
+    /* The dashboard on display and the zoom level and salary range of the salary chart */
+    private DepartmentDashboard dashboard;
+    private int salaryLevel;
+    private int salaryFrom = 0, salaryTo = Integer.MAX_VALUE;
+
+    /* Update in progress for the latest selection, guarded by the session lock */
+    private Future<?> pendingUpdate;
+    private long updateSequence;
 
     /* Init method is called when application starts */
     @Override
@@ -58,9 +91,18 @@ public class EmployeeUI extends UI {
         averageSalary.setReadOnly(true);
         averageSalary.setStyleName("huge borderless");
 
+        /* Text fields to hold the median and tail salaries, less skewed by a few high salaries than the average */
+        medianSalary = new TextField("Median Salary");
+        medianSalary.setReadOnly(true);
+        medianSalary.setStyleName("huge borderless");
+
+        tailSalaries = new TextField("90th / 99th Percentile");
+        tailSalaries.setReadOnly(true);
+        tailSalaries.setStyleName("borderless");
+
         /* ------- CHARTS ------- */
 
-        ChartOptions.get().setTheme(new ChartTheme());
+        ChartOptions.get().setTheme(CHART_THEME);
 
         /* Column chart to view balance between female and male employees at a certain department */
         genderChart = new Chart(ChartType.COLUMN);
@@ -68,6 +110,9 @@ public class EmployeeUI extends UI {
         Configuration genderChartConfig = genderChart.getConfiguration();
         genderChartConfig.getLegend().setEnabled(false); // Hide legend since salaryChart uses same series
         genderChartConfig.setTitle("Gender Balance");
+        PlotOptionsColumn genderPlotOptions = new PlotOptionsColumn();
+        genderPlotOptions.setAnimation(ANIMATION);
+        genderChartConfig.setPlotOptions(genderPlotOptions);
 
         maleCount = new ListSeries("Male", 0); // 0 is only used as an init value, chart is populated with data below
         femaleCount = new ListSeries("Female", 0);
@@ -85,10 +130,10 @@ public class EmployeeUI extends UI {
         /* Column chart to view how salaries are dispersed at a certain department */
         salaryChart = new Chart(ChartType.AREASPLINE);
         salaryChart.setHeight(100, Unit.PERCENTAGE);
-        salaryChartConfig = salaryChart.getConfiguration();
+        Configuration salaryChartConfig = salaryChart.getConfiguration();
         salaryChartConfig.setTitle("Salary Distribution");
         PlotOptionsAreaspline plotOption = new PlotOptionsAreaspline();
-        plotOption.setAnimation(false);
+        plotOption.setAnimation(ANIMATION);
         salaryChartConfig.setPlotOptions(plotOption);
 
         /* Legend settings */
@@ -100,10 +145,12 @@ public class EmployeeUI extends UI {
         legend.setY(50);
         legend.setFloating(true);
 
-        maleSalaryData = new DataSeries("Male");
-        femaleSalaryData = new DataSeries("Female");
+        DataSeries maleSalaryData = new DataSeries("Male");
+        DataSeries femaleSalaryData = new DataSeries("Female");
 
         salaryChartConfig.setSeries(maleSalaryData, femaleSalaryData);
+        maleSalaryBuckets = new BucketSeries(maleSalaryData);
+        femaleSalaryBuckets = new BucketSeries(femaleSalaryData);
 
         XAxis x2 = new XAxis();
         x2.setTitle("Salary in $");
@@ -113,6 +160,14 @@ public class EmployeeUI extends UI {
         y2.setTitle("Number of employees");
         salaryChartConfig.addyAxis(y2);
 
+        /* Selecting a salary range in the chart zooms in on it, answered from the histogram pyramid */
+        salaryChartConfig.getChart().setZoomType(Dimension.X);
+        salaryChart.addChartSelectionListener(e -> {
+            salaryFrom = Math.max(0, e.getSelectionStart().intValue());
+            salaryTo = e.getSelectionEnd().intValue();
+            drawSalaryChart();
+        });
+
         /* ------ SELECTOR ------- */
 
         /* Default department to use when starting application */
@@ -129,6 +184,39 @@ public class EmployeeUI extends UI {
                 updateUI(e.getSelectedItem().orElseThrow()) // Listens for new selections and updates TextFields and Charts
         );
 
+        /* Slider to view the department as it looked at the end of an earlier year */
+        final int currentYear = LocalDate.now().getYear();
+        Slider selectYear = new Slider("As of year", FIRST_YEAR, currentYear);
+        selectYear.setWidth(100, Unit.PERCENTAGE);
+        selectYear.setValue((double) currentYear);
+        selectYear.addValueChangeListener(e -> {
+            final int year = e.getValue().intValue();
+            asOf = year == currentYear ? null : LocalDate.of(year, 12, 31); // Both count the members on the date
+            updateUI(selectedDept);
+        });
+
+        /* Native Select component to choose the width of the salary buckets */
+        NativeSelect<Integer> selectResolution = new NativeSelect<>("Salary resolution");
+        selectResolution.setItems(IntStream.range(0, SalaryHistogram.LEVELS).boxed());
+        selectResolution.setItemCaptionGenerator(level -> format("$%,d", SalaryHistogram.bucketSize(level)));
+        selectResolution.setEmptySelectionAllowed(false);
+        selectResolution.setSelectedItem(salaryLevel);
+        selectResolution.addSelectionListener(e -> {
+            salaryLevel = e.getSelectedItem().orElse(0);
+            drawSalaryChart();
+        });
+
+        /* Button to zoom out to all salaries */
+        Button showAllSalaries = new Button("Show all salaries", e -> {
+            salaryFrom = 0;
+            salaryTo = Integer.MAX_VALUE;
+            drawSalaryChart();
+        });
+
+        /* Check box to compare all departments side by side instead of viewing the selected one */
+        CheckBox compareAll = new CheckBox("Compare all departments");
+        compareAll.addValueChangeListener(e -> showComparison(e.getValue()));
+
         /* ------ FILL COMPONENTS WITH VALUES FOR DEFAULT DEPARTMENT ------ */
 
         updateUI(defaultDept);
@@ -143,55 +231,125 @@ public class EmployeeUI extends UI {
         menu.setWidth(350, Unit.PIXELS);
 
         /* Body layout */
-        VerticalLayout body = new VerticalLayout();
+        body = new VerticalLayout();
         body.setSizeFull();
+        searchPanel = new EmployeeSearchPanel();
+        searchPanel.setDepartment(defaultDept);
 
         /* ------ FINAL ASSEMBLY ----- */
-        menu.addComponents(appTitle, selectDepartment, noOfEmployees, averageSalary);
-        body.addComponents(genderChart, salaryChart);
+        menu.addComponents(appTitle, selectDepartment, selectYear, noOfEmployees, averageSalary, medianSalary, tailSalaries, selectResolution, showAllSalaries, compareAll);
+        body.addComponents(genderChart, salaryChart, searchPanel);
         contents.addComponent(menu);
         contents.addComponentsAndExpand(body); // Fill the area to the right of the menu
         setContent(contents);
     }
 
 
-    /* Method that updates graphs and labels in GUI when a new department is selected */
+    /* Method that computes the dashboard for a new department in the background and pushes the result to the GUI */
     private void updateUI(Departments dept) {
+        if (pendingUpdate != null) {
+            UiExecutor.cancel(pendingUpdate); // The user has already moved on to another department
+        }
+        final long sequence = ++updateSequence;
+        final LocalDate date = asOf;
+        if (searchPanel != null && dept != selectedDept) {
+            searchPanel.setDepartment(dept);
+        }
+        selectedDept = dept;
+
+        try {
+            pendingUpdate = UiExecutor.submit(this,
+                () -> date == null // Timed by Metrics
+                    ? Optional.of(DataModel.dashboard(dept))
+                    : DataModel.findDashboard(dept, date), // Empty while the history is indexed
+                dashboard -> {
+                    if (sequence == updateSequence) { // Ignore results for superseded selections
+                        pendingUpdate = null;
+                        if (dashboard.isPresent()) {
+                            showDashboard(dashboard.get());
+                        } else {
+                            Notification.show("The history is still being loaded, please try again shortly", Notification.Type.WARNING_MESSAGE);
+                        }
+                    }
+                }
+            );
+        } catch (RejectedExecutionException e) {
+            pendingUpdate = null;
+            Notification.show("The server is busy, please try again", Notification.Type.WARNING_MESSAGE);
+        }
+    }
+
+    /* Method that swaps the body between the selected department and the comparison of all departments */
+    private void showComparison(boolean compare) {
+        body.removeAllComponents();
+        if (!compare) {
+            body.addComponents(genderChart, salaryChart, searchPanel);
+            return;
+        }
+        if (comparisonView == null) {
+            comparisonView = new ComparisonView();
+        }
+        body.addComponent(comparisonView);
+        try {
+            UiExecutor.submit(this, DataModel::compareDepartments, comparisonView::show);
+        } catch (RejectedExecutionException e) {
+            Notification.show("The server is busy, please try again", Notification.Type.WARNING_MESSAGE);
+        }
+    }
 
-        final Stopwatch sw = Stopwatch.createStarted();
-        final Map<Employees.Gender, Long> counts = DataModel.countEmployees(dept);
-        sw.stop();
-        System.out.format("Counting employees for each Gender took %s and was %s%n",  sw, counts);
+    /* Method that updates graphs and labels in GUI, must be called with the session lock held */
+    private void showDashboard(DepartmentDashboard dashboard) {
+        this.dashboard = dashboard;
+
+        final Map<Employees.Gender, Long> counts = dashboard.getGenderCounts();
 
         /* Update noOfEmployees Label */
-        noOfEmployees.setValue(format("%,d", counts.values().stream().mapToLong(l -> l).sum()));
+        noOfEmployees.setValue(format("%,d", dashboard.getEmployeeCount()));
 
         /* Update averageSalary Label */
-        averageSalary.setValue(format("$%,d", DataModel.averageSalary(dept).intValue()));
+        averageSalary.setValue(format("$%,d", (int) dashboard.getAverageSalary()));
+
+        /* Update percentile Labels */
+        medianSalary.setValue(format("$%,d", (int) dashboard.getSalaryPercentile(0.5)));
+        tailSalaries.setValue(format("$%,d / $%,d", (int) dashboard.getSalaryPercentile(0.9), (int) dashboard.getSalaryPercentile(0.99)));
 
         /* Update Gender Chart */
         maleCount.updatePoint(0, counts.getOrDefault(Gender.M, 0L));
         femaleCount.updatePoint(0, counts.getOrDefault(Gender.F, 0L));
 
-        final List<DataSeriesItem> maleSalaries = new ArrayList<>();
-        final List<DataSeriesItem> femaleSalaries = new ArrayList<>();
-
-        DataModel.freqAggregation(dept)
-            .streamAndClose()
-            .forEach(agg -> {
-                (agg.getGender() == Gender.F ? femaleSalaries : maleSalaries)
-                    .add(new DataSeriesItem(agg.getInterval() * 1_000, agg.getFrequency()));
-            });
-
-        Comparator<DataSeriesItem> comparator = Comparator.comparingDouble((DataSeriesItem dsi) -> dsi.getX().doubleValue());
+        drawSalaryChart();
+    }
 
-        maleSalaries.sort(comparator);
-        femaleSalaries.sort(comparator);
+    /*
+     * Method that updates the salary chart with the selected resolution and salary range. Only points
+     * that changed are sent to the client, the chart is redrawn when the buckets on the x-axis change.
+     */
+    private void drawSalaryChart() {
+        if (dashboard == null) {
+            return; // Nothing computed yet
+        }
+        final SalaryHistogram male = dashboard.getSalaryHistogram(Gender.M);
+        final SalaryHistogram female = dashboard.getSalaryHistogram(Gender.F);
+        final int first = salaryFrom / SalaryHistogram.bucketSize(salaryLevel);
+        final int end = Math.max(male.size(salaryLevel), female.size(salaryLevel));
+        final int count = Math.max(0, Math.min(end, salaryTo / SalaryHistogram.bucketSize(salaryLevel) + 1) - first);
+
+        final boolean redraw = maleSalaryBuckets.layout(salaryLevel, first, count)
+            | femaleSalaryBuckets.layout(salaryLevel, first, count); // Both series must be laid out
+        maleSalaryBuckets.update(male, salaryTo, !redraw);
+        femaleSalaryBuckets.update(female, salaryTo, !redraw);
+        if (redraw) {
+            salaryChart.drawChart();
+        }
+    }
 
-        maleSalaryData.setData(maleSalaries);
-        femaleSalaryData.setData(femaleSalaries);
-        //salaryChartConfig.setSeries(maleSalaryData, femaleSalaryData);
-        salaryChart.drawChart();
+    @Override
+    public void detach() {
+        if (pendingUpdate != null) {
+            UiExecutor.cancel(pendingUpdate);
+            pendingUpdate = null;
+        }
+        super.detach();
     }
 
     @WebServlet(urlPatterns = "/*", name = "MyUIServlet", asyncSupported = true)
@@ -0,0 +1,158 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.salaries.Salaries;
+import com.speedment.webapp.DataModel.DeptEmplEmployeesSalaries;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Streams the department/employee/current salary join as CSV or newline delimited JSON.
+ * <p>
+ * {@code /export?dept=d005&format=ndjson} exports one department, leaving out {@code dept}
+ * exports all departments. Rows are written one at a time through a fixed size buffer without
+ * a content length, so the response is sent chunked and memory use does not depend on the
+ * number of rows. A slow client blocks the writing thread, which in turn stops pulling rows
+ * from the join.
+ */
+@WebServlet(urlPatterns = "/export", name = "ExportServlet")
+public class ExportServlet extends HttpServlet {
+
+    /* Size of the response buffer, a chunk is sent to the client every time it fills up */
+    private static final int BUFFER_SIZE = Integer.getInteger("employees.export.buffer", 64 * 1024);
+
+    private static final String[] COLUMNS = {"dept_no", "emp_no", "first_name", "last_name", "gender", "salary", "from_date", "to_date"};
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final String format = Optional.ofNullable(req.getParameter("format")).orElse("csv");
+        if (!"csv".equals(format) && !"ndjson".equals(format)) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv or ndjson");
+            return;
+        }
+
+        final String deptNo = req.getParameter("dept");
+        final Departments dept;
+        if (deptNo == null) {
+            dept = null;
+        } else {
+            final Optional<Departments> found = DataModel.departments()
+                .filter(d -> d.getDeptNo().equals(deptNo))
+                .findFirst();
+            if (!found.isPresent()) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No such department: " + deptNo);
+                return;
+            }
+            dept = found.get();
+        }
+
+        final boolean csv = "csv".equals(format);
+        resp.setBufferSize(BUFFER_SIZE);
+        resp.setCharacterEncoding("UTF-8");
+        resp.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        resp.setHeader("Content-Disposition", String.format("attachment; filename=\"%s.%s\"", deptNo == null ? "all" : deptNo, format));
+        resp.setHeader("Cache-Control", "no-store");
+
+        final Writer out = new BufferedWriter(new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        final StringBuilder row = new StringBuilder(256); // Reused for every row
+
+        if (csv) {
+            out.write(String.join(",", COLUMNS));
+            out.write('\n');
+        }
+
+        final long start = System.nanoTime();
+        final long[] rows = {0};
+        String query = "export";
+        try (Stream<DeptEmplEmployeesSalaries> joined = DataModel.joinedRows(dept)) {
+            joined.forEachOrdered(t -> {
+                row.setLength(0);
+                if (csv) {
+                    csv(row, t);
+                } else {
+                    ndjson(row, t);
+                }
+                write(out, row);
+                rows[0]++;
+            });
+            out.flush();
+        } catch (UncheckedIOException e) {
+            query = "exportAborted"; // The client went away, there is nobody left to report to
+        } finally {
+            final String scope = deptNo == null ? "all" : deptNo;
+            Metrics.latency(query, scope, System.nanoTime() - start);
+            Metrics.rows(query, scope, rows[0], rows[0]);
+        }
+    }
+
+    private static void csv(StringBuilder row, DeptEmplEmployeesSalaries t) {
+        final Employees e = t.employees();
+        final Salaries s = t.salaries();
+        row.append(t.deptEmp().getDeptNo()).append(',')
+            .append(e.getEmpNo()).append(',');
+        csvText(row, e.getFirstName()).append(',');
+        csvText(row, e.getLastName()).append(',');
+        row.append(e.getGender()).append(',')
+            .append(s.getSalary()).append(',')
+            .append(s.getFromDate()).append(',')
+            .append(s.getToDate()).append('\n');
+    }
+
+    private static void ndjson(StringBuilder row, DeptEmplEmployeesSalaries t) {
+        final Employees e = t.employees();
+        final Salaries s = t.salaries();
+        row.append("{\"dept_no\":\"").append(t.deptEmp().getDeptNo())
+            .append("\",\"emp_no\":").append(e.getEmpNo())
+            .append(",\"first_name\":");
+        jsonText(row, e.getFirstName()).append(",\"last_name\":");
+        jsonText(row, e.getLastName())
+            .append(",\"gender\":\"").append(e.getGender())
+            .append("\",\"salary\":").append(s.getSalary())
+            .append(",\"from_date\":\"").append(s.getFromDate())
+            .append("\",\"to_date\":\"").append(s.getToDate())
+            .append("\"}\n");
+    }
+
+    /* Quotes values containing separators, quotes or line breaks */
+    private static StringBuilder csvText(StringBuilder row, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return row.append(value);
+        }
+        return row.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    static StringBuilder jsonText(StringBuilder row, String value) {
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                row.append('\\').append(c);
+            } else if (c < 0x20) {
+                row.append(String.format("\\u%04x", (int) c));
+            } else {
+                row.append(c);
+            }
+        }
+        return row.append('"');
+    }
+
+    private static void write(Writer out, CharSequence row) {
+        try {
+            out.append(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
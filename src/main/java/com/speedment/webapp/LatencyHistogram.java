@@ -0,0 +1,91 @@
+package com.speedment.webapp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with exponentially growing buckets from 50 microseconds
+ * up to about 50 seconds. Percentiles are reported as the upper bound of the bucket the
+ * percentile falls into, which is accurate to within a factor of two.
+ */
+final class LatencyHistogram {
+
+    private static final long FIRST_BOUND_NANOS = 50_000;
+    private static final int BUCKETS = 21;
+
+    /* Upper bound of every bucket in nanoseconds, the last bucket is unbounded */
+    private static final long[] BOUNDS = new long[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            BOUNDS[i] = FIRST_BOUND_NANOS << i;
+        }
+    }
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKETS && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    long getCount() {
+        long count = 0;
+        for (LongAdder adder : counts) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /* Returns the percentile, e.g. 0.99, in nanoseconds or 0 if nothing has been recorded */
+    long percentileNanos(double percentile) {
+        final long[] snapshot = snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(percentile * total);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank) {
+                return BOUNDS[i];
+            }
+        }
+        return BOUNDS[BUCKETS - 1] * 2;
+    }
+
+    /* Number of recorded values in each bucket, the last element holds values above the last bound */
+    long[] snapshot() {
+        final long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    static long boundNanos(int bucket) {
+        return BOUNDS[bucket];
+    }
+
+    static int buckets() {
+        return BUCKETS;
+    }
+}
@@ -0,0 +1,215 @@
+package com.speedment.webapp;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Collects query latency, rows and snapshot statistics. Everything is registered with the
+ * platform MBean server under the domain {@code com.speedment.webapp} and can be written
+ * in the Prometheus text format, see {@link MetricsServlet}.
+ */
+public final class Metrics {
+
+    private static final String DOMAIN = "com.speedment.webapp";
+
+    private static final ConcurrentMap<String, QueryStats> QUERIES = new ConcurrentHashMap<>();
+    private static final ServerStats SERVER = new ServerStats();
+
+    private static volatile long snapshotLoadNanos;
+
+    static {
+        register(SERVER, ServerStatsMBean.class, DOMAIN + ":type=Server");
+    }
+
+    private Metrics() {
+    }
+
+    /* Runs the query and records how long it took */
+    static <T> T time(String query, String deptNo, Supplier<T> supplier) {
+        final long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            latency(query, deptNo, System.nanoTime() - start);
+        }
+    }
+
+    /* Records how long a query took, for callers that cannot be wrapped in time() */
+    static void latency(String query, String deptNo, long nanos) {
+        stats(query, deptNo).latency().record(nanos);
+    }
+
+    /* Records the number of dept_emp rows a query started from and the rows left after the date filter */
+    static void rows(String query, String deptNo, long joined, long filtered) {
+        stats(query, deptNo).addRows(joined, filtered);
+    }
+
+    static void snapshotLoaded(long nanos) {
+        snapshotLoadNanos = nanos;
+    }
+
+    static void writePrometheus(PrintWriter out) {
+        final List<QueryStats> queries = QUERIES.values().stream()
+            .sorted(Comparator.comparing(QueryStats::getQuery).thenComparing(QueryStats::getDeptNo))
+            .collect(toList());
+
+        out.println("# HELP employees_query_duration_seconds Time to answer a query.");
+        out.println("# TYPE employees_query_duration_seconds histogram");
+        for (QueryStats stats : queries) {
+            final String labels = labels(stats);
+            final long[] buckets = stats.latency().snapshot();
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.buckets(); i++) {
+                cumulative += buckets[i];
+                out.format(Locale.ROOT, "employees_query_duration_seconds_bucket{%s,le=\"%s\"} %d%n",
+                    labels, seconds(LatencyHistogram.boundNanos(i)), cumulative);
+            }
+            cumulative += buckets[LatencyHistogram.buckets()];
+            out.format(Locale.ROOT, "employees_query_duration_seconds_bucket{%s,le=\"+Inf\"} %d%n", labels, cumulative);
+            out.format(Locale.ROOT, "employees_query_duration_seconds_sum{%s} %s%n", labels, seconds(stats.latency().getSumNanos()));
+            out.format(Locale.ROOT, "employees_query_duration_seconds_count{%s} %d%n", labels, cumulative);
+        }
+
+        out.println("# HELP employees_query_duration_quantile_seconds Latency percentiles, upper bound of the histogram bucket.");
+        out.println("# TYPE employees_query_duration_quantile_seconds gauge");
+        for (QueryStats stats : queries) {
+            for (double quantile : new double[]{0.5, 0.95, 0.99}) {
+                out.format(Locale.ROOT, "employees_query_duration_quantile_seconds{%s,quantile=\"%s\"} %s%n",
+                    labels(stats), quantile, seconds(stats.latency().percentileNanos(quantile)));
+            }
+        }
+
+        out.println("# HELP employees_query_rows_total Rows the join started from (joined) and rows left after the date filter (filtered).");
+        out.println("# TYPE employees_query_rows_total counter");
+        for (QueryStats stats : queries) {
+            out.format("employees_query_rows_total{%s,stage=\"joined\"} %d%n", labels(stats), stats.getRowsJoined());
+            out.format("employees_query_rows_total{%s,stage=\"filtered\"} %d%n", labels(stats), stats.getRowsFiltered());
+        }
+
+        out.println("# TYPE employees_query_executions_total counter");
+        out.format("employees_query_executions_total{mode=\"parallel\"} %d%n", SERVER.getParallelQueries());
+        out.format("employees_query_executions_total{mode=\"sequential\"} %d%n", SERVER.getSequentialQueries());
+        gauge(out, "employees_query_queue_depth", SERVER.getQueryQueueDepth());
+        gauge(out, "employees_query_pool_parallelism", SERVER.getQueryPoolParallelism());
+        gauge(out, "employees_query_pool_active_threads", SERVER.getQueryPoolActiveThreads());
+        gauge(out, "employees_query_parallel_running", SERVER.getRunningParallelQueries());
+        out.println("# TYPE employees_query_shared_requests_total counter");
+        out.format("employees_query_shared_requests_total %d%n", SERVER.getSharedQueryRequests());
+        out.println("# TYPE employees_query_coalesced_total counter");
+        out.format("employees_query_coalesced_total %d%n", SERVER.getCoalescedRequests());
+        gauge(out, "employees_query_shared_in_flight", SERVER.getSharedQueriesInFlight());
+
+        gauge(out, "employees_snapshot_version", SERVER.getSnapshotVersion());
+        out.println("# TYPE employees_snapshot_load_seconds gauge");
+        out.format(Locale.ROOT, "employees_snapshot_load_seconds %s%n", SERVER.getSnapshotLoadSeconds());
+        gauge(out, "employees_offheap_bytes", SERVER.getOffHeapBytes());
+    }
+
+    private static QueryStats stats(String query, String deptNo) {
+        return QUERIES.computeIfAbsent(query + '/' + deptNo, key -> {
+            final QueryStats stats = new QueryStats(query, deptNo);
+            register(stats, QueryStatsMBean.class, DOMAIN + ":type=Query,query=" + query + ",dept=" + deptNo);
+            return stats;
+        });
+    }
+
+    private static <T> void register(T mbean, Class<T> mbeanInterface, String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(mbean, mbeanInterface), new ObjectName(name));
+        } catch (JMException e) {
+            // Metrics are still available from the servlet, e.g. when redeployed in the same JVM
+            System.err.format("Could not register MBean %s: %s%n", name, e);
+        }
+    }
+
+    private static String labels(QueryStats stats) {
+        return String.format("query=\"%s\",dept=\"%s\"", stats.getQuery(), stats.getDeptNo());
+    }
+
+    private static void gauge(PrintWriter out, String name, long value) {
+        out.format("# TYPE %s gauge%n%s %d%n", name, name, value);
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static final class ServerStats implements ServerStatsMBean {
+
+        @Override
+        public long getSnapshotVersion() {
+            final DashboardSnapshot snapshot = DataModel.currentSnapshot();
+            return snapshot == null ? 0 : snapshot.getVersion();
+        }
+
+        @Override
+        public double getSnapshotLoadSeconds() {
+            return snapshotLoadNanos / 1e9;
+        }
+
+        @Override
+        public long getOffHeapBytes() {
+            return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> "direct".equals(pool.getName()))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+        }
+
+        @Override
+        public int getQueryQueueDepth() {
+            return QueryExecutor.getQueueDepth();
+        }
+
+        @Override
+        public int getQueryPoolParallelism() {
+            return QueryExecutor.getParallelism();
+        }
+
+        @Override
+        public int getQueryPoolActiveThreads() {
+            return QueryExecutor.getActiveThreads();
+        }
+
+        @Override
+        public long getParallelQueries() {
+            return QueryExecutor.getParallelQueries();
+        }
+
+        @Override
+        public long getSequentialQueries() {
+            return QueryExecutor.getSequentialQueries();
+        }
+
+        @Override
+        public int getRunningParallelQueries() {
+            return QueryExecutor.getRunning();
+        }
+
+        @Override
+        public long getSharedQueryRequests() {
+            return DataModel.inFlight().getRequests();
+        }
+
+        @Override
+        public long getCoalescedRequests() {
+            return DataModel.inFlight().getCoalesced();
+        }
+
+        @Override
+        public int getSharedQueriesInFlight() {
+            return DataModel.inFlight().getInFlight();
+        }
+    }
+}
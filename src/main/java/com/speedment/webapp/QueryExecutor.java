@@ -0,0 +1,125 @@
+package com.speedment.webapp;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Runs the parallel join and aggregation queries on a dedicated ForkJoinPool instead of
+ * the common pool that is shared with the rest of the JVM. At most a fixed number of
+ * queries run in parallel at a time, others wait in line for a while and are then run
+ * sequentially on the calling thread.
+ * <p>
+ * A caller that is interrupted while its query runs on the pool stops waiting right away. A
+ * query that has not started yet is cancelled, one that is running finishes on the pool and
+ * keeps its parallel slot until then.
+ */
+final class QueryExecutor {
+
+    private static final int PARALLELISM = Integer.getInteger("employees.query.parallelism", Runtime.getRuntime().availableProcessors());
+    private static final int CONCURRENCY = Integer.getInteger("employees.query.concurrency", 2);
+    private static final long WAIT_MILLIS = Long.getLong("employees.query.wait.millis", 200);
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, pool -> {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("query-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    private static final Semaphore PERMITS = new Semaphore(CONCURRENCY, true);
+    private static final AtomicInteger WAITING = new AtomicInteger();
+    private static final LongAdder PARALLEL = new LongAdder();
+    private static final LongAdder SEQUENTIAL = new LongAdder();
+
+    private QueryExecutor() {
+    }
+
+    /* Streams the rows in parallel on the query pool if there is room, otherwise sequentially on the calling thread */
+    static <T, R> R collect(Supplier<Stream<T>> rows, Collector<? super T, ?, R> collector) {
+        WAITING.incrementAndGet();
+        final boolean admitted;
+        try {
+            admitted = PERMITS.tryAcquire(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting to run query");
+        } finally {
+            WAITING.decrementAndGet();
+        }
+
+        if (!admitted) {
+            SEQUENTIAL.increment();
+            return rows.get().sequential().collect(collector);
+        }
+        PARALLEL.increment();
+        final AtomicBoolean started = new AtomicBoolean();
+        // Parallel streams started from within a pool use that pool for their tasks
+        final ForkJoinTask<R> task = POOL.submit(() -> {
+            if (!started.compareAndSet(false, true)) {
+                return null; // Abandoned by an interrupted caller before it started
+            }
+            try {
+                return rows.get().parallel().collect(collector);
+            } finally {
+                PERMITS.release();
+            }
+        });
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            if (started.compareAndSet(false, true)) {
+                PERMITS.release(); // The task will never run, so it cannot release the slot
+            }
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while running query");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /* Number of queries waiting for a parallel slot */
+    static int getQueueDepth() {
+        return WAITING.get();
+    }
+
+    /* Number of queries holding a parallel slot */
+    static int getRunning() {
+        return CONCURRENCY - PERMITS.availablePermits();
+    }
+
+    static int getParallelism() {
+        return POOL.getParallelism();
+    }
+
+    static int getActiveThreads() {
+        return POOL.getActiveThreadCount();
+    }
+
+    static long getParallelQueries() {
+        return PARALLEL.sum();
+    }
+
+    /* Number of queries that were degraded to sequential execution */
+    static long getSequentialQueries() {
+        return SEQUENTIAL.sum();
+    }
+}
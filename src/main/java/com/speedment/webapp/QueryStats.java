@@ -0,0 +1,69 @@
+package com.speedment.webapp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Latency and row statistics for one query and department.
+ */
+final class QueryStats implements QueryStatsMBean {
+
+    private final String query;
+    private final String deptNo;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rowsJoined = new LongAdder();
+    private final LongAdder rowsFiltered = new LongAdder();
+
+    QueryStats(String query, String deptNo) {
+        this.query = requireNonNull(query);
+        this.deptNo = requireNonNull(deptNo);
+    }
+
+    String getQuery() {
+        return query;
+    }
+
+    String getDeptNo() {
+        return deptNo;
+    }
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    void addRows(long joined, long filtered) {
+        rowsJoined.add(joined);
+        rowsFiltered.add(filtered);
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.percentileNanos(0.50) / 1e6;
+    }
+
+    @Override
+    public double getP95Millis() {
+        return latency.percentileNanos(0.95) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.percentileNanos(0.99) / 1e6;
+    }
+
+    @Override
+    public long getRowsJoined() {
+        return rowsJoined.sum();
+    }
+
+    @Override
+    public long getRowsFiltered() {
+        return rowsFiltered.sum();
+    }
+}
@@ -0,0 +1,21 @@
+package com.speedment.webapp;
+
+/**
+ * JMX view of the statistics for one query and department.
+ */
+public interface QueryStatsMBean {
+
+    long getCount();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    /* Number of dept_emp rows the join started from */
+    long getRowsJoined();
+
+    /* Number of joined rows left after filtering out historic salaries */
+    long getRowsFiltered();
+}
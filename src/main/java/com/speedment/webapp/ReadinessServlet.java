@@ -0,0 +1,33 @@
+package com.speedment.webapp;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Readiness probe for load balancers. Responds with 200 once the DataStore is loaded and
+ * warmed up by {@link WarmUpListener} and with 503 until then.
+ */
+@WebServlet(urlPatterns = "/ready", name = "ReadinessServlet")
+public class ReadinessServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final WarmUpListener.State state = WarmUpListener.getState();
+        resp.setStatus(state == WarmUpListener.State.READY
+            ? HttpServletResponse.SC_OK
+            : HttpServletResponse.SC_SERVICE_UNAVAILABLE
+        );
+        resp.setContentType("text/plain");
+        resp.setHeader("Cache-Control", "no-store");
+        try (PrintWriter out = resp.getWriter()) {
+            out.println(state);
+            if (state == WarmUpListener.State.FAILED) {
+                out.println(WarmUpListener.getFailure());
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.speedment.webapp;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable salary histogram stored as a pyramid. The base level has one bucket for each
+ * {@link DataModel#SALARY_BUCKET_SIZE} dollars starting at zero and every level above
+ * it halves the resolution by summing pairs of buckets, so any zoom level and salary
+ * range is answered in time proportional to the number of buckets returned.
+ * <p>
+ * Histograms are mergeable by adding counts, which makes the base level a fixed-error
+ * quantile sketch: percentiles are exact to within one base bucket for any merge of
+ * genders or departments.
+ */
+public final class SalaryHistogram {
+
+    /* Number of levels including the base, the top level has buckets 32 times the base size */
+    public static final int LEVELS = 6;
+
+    private static final SalaryHistogram EMPTY = new SalaryHistogram(new long[0]);
+
+    private final long[][] levels;
+    /* Running total of the base buckets, cumulative[i] is the number of salaries below bucket i + 1 */
+    private final long[] cumulative;
+
+    private SalaryHistogram(long[] base) {
+        cumulative = new long[base.length];
+        long sum = 0;
+        for (int i = 0; i < base.length; i++) {
+            sum += base[i];
+            cumulative[i] = sum;
+        }
+
+        levels = new long[LEVELS][];
+        levels[0] = base;
+        for (int level = 1; level < LEVELS; level++) {
+            final long[] finer = levels[level - 1];
+            final long[] coarser = new long[(finer.length + 1) / 2];
+            for (int i = 0; i < finer.length; i++) {
+                coarser[i / 2] += finer[i];
+            }
+            levels[level] = coarser;
+        }
+    }
+
+    static SalaryHistogram empty() {
+        return EMPTY;
+    }
+
+    /* Creates a histogram from base bucket counts, the first element is the bucket starting at zero */
+    static SalaryHistogram of(long[] base) {
+        return new SalaryHistogram(base.clone());
+    }
+
+    /* Creates a histogram from base bucket index to frequency */
+    static SalaryHistogram of(Map<Integer, Long> frequencies) {
+        final int size = frequencies.keySet().stream().mapToInt(i -> i + 1).max().orElse(0);
+        final long[] base = new long[size];
+        frequencies.forEach((interval, frequency) -> base[interval] += frequency);
+        return new SalaryHistogram(base);
+    }
+
+    /* Adds the histograms together, e.g. both genders or several departments */
+    static SalaryHistogram merge(Collection<SalaryHistogram> histograms) {
+        final int size = histograms.stream().mapToInt(h -> h.levels[0].length).max().orElse(0);
+        final long[] base = new long[size];
+        for (SalaryHistogram histogram : histograms) {
+            final long[] other = histogram.levels[0];
+            for (int i = 0; i < other.length; i++) {
+                base[i] += other[i];
+            }
+        }
+        return new SalaryHistogram(base);
+    }
+
+    /* Width in dollars of the buckets at the level */
+    public static int bucketSize(int level) {
+        return DataModel.SALARY_BUCKET_SIZE << level;
+    }
+
+    /* Number of buckets at the level, the last one contains the highest salary */
+    public int size(int level) {
+        return levels[level].length;
+    }
+
+    /* Number of salaries in the bucket at the level */
+    public long count(int level, int bucket) {
+        return bucket < levels[level].length ? levels[level][bucket] : 0;
+    }
+
+    /* Counts for the buckets at the level that overlap the salary range, starting with the bucket containing fromSalary */
+    public long[] counts(int level, int fromSalary, int toSalary) {
+        final long[] buckets = levels[level];
+        final int from = Math.max(0, fromSalary / bucketSize(level));
+        final int to = Math.min(buckets.length, toSalary / bucketSize(level) + 1);
+        return from >= to ? new long[0] : Arrays.copyOfRange(buckets, from, to);
+    }
+
+    /* Number of salaries in the histogram */
+    public long total() {
+        return cumulative.length == 0 ? 0 : cumulative[cumulative.length - 1];
+    }
+
+    /*
+     * Salary at the quantile (0.5 for the median), interpolated linearly within the base bucket
+     * holding it. The error is at most one base bucket, 0 is returned for an empty histogram.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        final long total = total();
+        if (total == 0) {
+            return 0;
+        }
+        final double rank = Math.max(1, Math.ceil(q * total));
+        int bucket = Arrays.binarySearch(cumulative, (long) rank);
+        if (bucket < 0) {
+            bucket = -bucket - 1; // First bucket with a running total above the rank
+        } else {
+            while (bucket > 0 && cumulative[bucket - 1] == cumulative[bucket]) {
+                bucket--; // Skip back over empty buckets ending at the same total
+            }
+        }
+        final long below = bucket == 0 ? 0 : cumulative[bucket - 1];
+        final long count = cumulative[bucket] - below;
+        return (bucket + (rank - below) / count) * bucketSize(0);
+    }
+
+    /*
+     * The buckets of the level without copying. The array is shared by every session showing the
+     * histogram and must not be modified.
+     */
+    long[] buckets(int level) {
+        return levels[level];
+    }
+
+    /* Non empty base buckets as interval to frequency */
+    SortedMap<Integer, Long> frequencies() {
+        final SortedMap<Integer, Long> frequencies = new TreeMap<>();
+        final long[] base = levels[0];
+        for (int i = 0; i < base.length; i++) {
+            if (base[i] != 0) {
+                frequencies.put(i, base[i]);
+            }
+        }
+        return Collections.unmodifiableSortedMap(frequencies);
+    }
+}
@@ -0,0 +1,36 @@
+package com.speedment.webapp;
+
+/**
+ * JMX view of the snapshot and query engine statistics.
+ */
+public interface ServerStatsMBean {
+
+    long getSnapshotVersion();
+
+    /* Time it took to load the DataStore and aggregate the last snapshot */
+    double getSnapshotLoadSeconds();
+
+    /* Direct memory in use, the DataStore keeps its data off-heap */
+    long getOffHeapBytes();
+
+    int getQueryQueueDepth();
+
+    int getQueryPoolParallelism();
+
+    int getQueryPoolActiveThreads();
+
+    long getParallelQueries();
+
+    long getSequentialQueries();
+
+    /* Parallel queries running now, at most employees.query.concurrency */
+    int getRunningParallelQueries();
+
+    /* Requests for shared department queries, some of which were coalesced */
+    long getSharedQueryRequests();
+
+    long getCoalescedRequests();
+
+    /* Shared department queries running now */
+    int getSharedQueriesInFlight();
+}
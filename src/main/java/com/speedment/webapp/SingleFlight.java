@@ -0,0 +1,102 @@
+package com.speedment.webapp;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Coalesces concurrent calls for the same key so that only the first caller runs the
+ * computation and the others wait for and share its result. Nothing is cached once the
+ * computation has completed, so results must be keyed on everything they depend on.
+ * <p>
+ * The computation runs on the thread of the first caller. If that caller is cancelled, the
+ * others do not get its CancellationException but start over, one of them as the new first caller.
+ * A waiting caller that is interrupted stops waiting with a CancellationException.
+ *
+ * @param <K> key type
+ * @param <V> result type, shared between callers and should therefore be immutable
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    V get(K key, Supplier<? extends V> computation) {
+        requireNonNull(key);
+        requests.increment();
+
+        while (true) {
+            final CompletableFuture<V> created = new CompletableFuture<>();
+            final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                return compute(key, created, computation);
+            }
+            try {
+                final V result = await(existing);
+                coalesced.increment();
+                return result;
+            } catch (CancellationException e) {
+                // The first caller was cancelled, which says nothing about this one
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                inFlight.remove(key, existing); // Do not wait for the first caller to clean up
+            }
+        }
+    }
+
+    private V compute(K key, CompletableFuture<V> created, Supplier<? extends V> computation) {
+        try {
+            final V result = computation.get();
+            created.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /* Total number of requests */
+    long getRequests() {
+        return requests.sum();
+    }
+
+    /* Number of requests that shared the result of another request */
+    long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /* Number of computations running now */
+    int getInFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Only this caller gives up, the first caller still completes the future for the others
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a shared query");
+        } catch (ExecutionException e) {
+            // Rethrow the same exception the computing caller got
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
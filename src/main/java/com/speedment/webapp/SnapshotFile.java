@@ -0,0 +1,165 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.departments.DepartmentsImpl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the columnar projection of a snapshot to a local file so that a restarted node
+ * can serve dashboards without loading the DataStore from the database. The file is
+ * only used if it was written for the same database schema, its checksum matches and it
+ * is younger than the configured max age.
+ * <p>
+ * The file is memory mapped while it is read, but the columns are copied into heap arrays
+ * so that the restored snapshot does not depend on the mapping. The index is small next to
+ * the DataStore, so the copy costs little and the file can be replaced by the next write.
+ */
+final class SnapshotFile {
+
+    static final String FILE_PROPERTY = "employees.snapshot.file";
+
+    private static final int MAGIC = 0x454D5053; // "EMPS"
+    private static final int FORMAT_VERSION = 2; // 2: only current dept_emp rows
+    private static final String SCHEMA_RESOURCE = "/speedment.json";
+    private static final long MAX_AGE_MINUTES = Long.getLong("employees.snapshot.maxAgeMinutes", 24 * 60);
+
+    private SnapshotFile() {
+    }
+
+    static boolean isEnabled() {
+        return System.getProperty(FILE_PROPERTY) != null;
+    }
+
+    /* Writes the snapshot next to the target file and then moves it in place */
+    static void write(DashboardSnapshot snapshot) {
+        final ColumnarIndex index = snapshot.columnarIndex()
+            .orElseThrow(() -> new IllegalArgumentException("Only snapshots with a columnar index can be persisted"));
+
+        final Path path = path();
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream payload = new DataOutputStream(bytes)) {
+                payload.writeInt(snapshot.departments().size());
+                for (Departments dept : snapshot.departments()) {
+                    payload.writeUTF(dept.getDeptNo());
+                    payload.writeUTF(dept.getDeptName());
+                }
+                index.write(payload);
+            }
+
+            final CRC32 checksum = new CRC32();
+            checksum.update(bytes.toByteArray());
+
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(schemaHash());
+                out.writeLong(snapshot.getCreatedMillis());
+                out.writeLong(snapshot.getCurrentDate().toEpochDay());
+                out.writeLong(checksum.getValue());
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot file " + path, e);
+        }
+    }
+
+    /* Reads the snapshot if the file exists and is valid, fresh and made for the current schema */
+    static Optional<DashboardSnapshot> read(long version) {
+        final Path path = path();
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                return rejected(path, "unknown format");
+            }
+            if (in.getLong() != schemaHash()) {
+                return rejected(path, "written for another schema");
+            }
+            final long createdMillis = in.getLong();
+            final LocalDate currentDate = LocalDate.ofEpochDay(in.getLong());
+            final Duration age = Duration.ofMillis(System.currentTimeMillis() - createdMillis);
+            if (age.toMinutes() > MAX_AGE_MINUTES || !currentDate.equals(LocalDate.now())) {
+                return rejected(path, "too old");
+            }
+
+            final long expectedChecksum = in.getLong();
+            final int length = in.getInt();
+            final ByteBuffer payload = in.slice();
+            payload.limit(length);
+            final CRC32 checksum = new CRC32();
+            checksum.update(payload.duplicate());
+            if (checksum.getValue() != expectedChecksum) {
+                return rejected(path, "checksum mismatch");
+            }
+
+            final int departmentCount = payload.getInt();
+            final List<Departments> departments = new ArrayList<>(departmentCount);
+            for (int i = 0; i < departmentCount; i++) {
+                departments.add(new DepartmentsImpl()
+                    .setDeptNo(ColumnarIndex.readUTF(payload))
+                    .setDeptName(ColumnarIndex.readUTF(payload))
+                );
+            }
+            final ColumnarIndex index = ColumnarIndex.read(payload);
+
+            return Optional.of(DashboardSnapshot.build(version, currentDate, departments, index::dashboard, index));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            return rejected(path, e.toString());
+        }
+    }
+
+    private static Optional<DashboardSnapshot> rejected(Path path, String reason) {
+        System.out.format("Not using snapshot file %s: %s%n", path, reason);
+        return Optional.empty();
+    }
+
+    private static Path path() {
+        return Paths.get(System.getProperty(FILE_PROPERTY));
+    }
+
+    /* Hash of the database metadata the generated code was made from */
+    private static long schemaHash() throws IOException {
+        try (InputStream in = SnapshotFile.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new IOException(SCHEMA_RESOURCE + " is not on the class path");
+            }
+            final CRC32 checksum = new CRC32();
+            final byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                checksum.update(buffer, 0, read);
+            }
+            return checksum.getValue();
+        }
+    }
+}
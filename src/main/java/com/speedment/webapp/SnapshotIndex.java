@@ -0,0 +1,115 @@
+package com.speedment.webapp;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An index over the data behind a snapshot, built on first use and rebuilt when a newer snapshot
+ * asks for it. It is never rebuilt for an older snapshot, callers that still hold one get the
+ * current index. The previous index is released before the next is built so that two generations
+ * are never on the heap at the same time.
+ * <p>
+ * {@link #get} waits for the index and is meant for background work. UI updates use {@link #find},
+ * which never waits: the index is built on a separate thread and the caller is told that it is not
+ * available yet. A failed build is retried by the next caller.
+ *
+ * @param <T> index type
+ */
+final class SnapshotIndex<T> {
+
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "index-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<DashboardSnapshot, T> builder;
+    private CompletableFuture<T> index; // Guarded by this
+    private long version; // Guarded by this
+
+    SnapshotIndex(Function<DashboardSnapshot, T> builder) {
+        this.builder = requireNonNull(builder);
+    }
+
+    /* Waits for the index, building it on the calling thread if it is missing or older than the snapshot */
+    T get(DashboardSnapshot current) {
+        final CompletableFuture<T> future;
+        final boolean stale;
+        synchronized (this) {
+            stale = isStale(current);
+            if (stale) {
+                start(current);
+            }
+            future = index;
+        }
+        if (stale) {
+            build(future, current);
+        }
+        return await(future);
+    }
+
+    /* The index if it is built, otherwise the index is built in the background and nothing is returned */
+    Optional<T> find(DashboardSnapshot current) {
+        final CompletableFuture<T> future;
+        synchronized (this) {
+            if (isStale(current)) {
+                start(current);
+                final CompletableFuture<T> started = index;
+                BUILDER.execute(() -> {
+                    try {
+                        build(started, current);
+                    } catch (RuntimeException | Error e) {
+                        System.err.format("Could not build index for snapshot version %d: %s%n", current.getVersion(), e);
+                    }
+                });
+            }
+            future = index;
+        }
+        return future.isDone() && !future.isCompletedExceptionally()
+            ? Optional.of(future.join())
+            : Optional.empty();
+    }
+
+    private boolean isStale(DashboardSnapshot current) {
+        return index == null || version < current.getVersion() || index.isCompletedExceptionally();
+    }
+
+    private void start(DashboardSnapshot current) {
+        index = new CompletableFuture<>(); // Let the previous generation be collected before building the next
+        version = current.getVersion();
+    }
+
+    private void build(CompletableFuture<T> future, DashboardSnapshot current) {
+        try {
+            future.complete(builder.apply(current));
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for an index");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
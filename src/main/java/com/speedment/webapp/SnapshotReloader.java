@@ -0,0 +1,47 @@
+package com.speedment.webapp;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically reloads the DataStore on a background thread so that new data and a new
+ * current date are picked up without a restart.
+ */
+final class SnapshotReloader {
+
+    static final String INTERVAL_PROPERTY = "employees.reload.minutes";
+
+    private static ScheduledExecutorService scheduler;
+
+    private SnapshotReloader() {
+    }
+
+    static synchronized void start(Runnable reload) {
+        final long minutes = Long.getLong(INTERVAL_PROPERTY, 0);
+        if (minutes <= 0 || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "datastore-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Fixed delay so that a slow reload never overlaps with the next one
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reload.run();
+            } catch (RuntimeException e) {
+                // Keep serving the previous generation and try again next time
+                System.err.format("Reloading the DataStore failed: %s%n", e);
+            }
+        }, minutes, minutes, TimeUnit.MINUTES);
+    }
+
+    static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.speedment.webapp;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Binary searches for the bounds of a key in sorted arrays, shared by the indexes.
+ */
+final class SortedArrays {
+
+    private SortedArrays() {
+    }
+
+    /* Index of the first element greater than or equal to the key */
+    static int lowerBound(int[] sorted, int key) {
+        return partitionPoint(sorted.length, i -> sorted[i] < key);
+    }
+
+    /* Index of the first element greater than the key */
+    static int upperBound(int[] sorted, int key) {
+        return partitionPoint(sorted.length, i -> sorted[i] <= key);
+    }
+
+    /* Index of the first element greater than or equal to the key */
+    static int lowerBound(String[] sorted, String key) {
+        return partitionPoint(sorted.length, i -> sorted[i].compareTo(key) < 0);
+    }
+
+    /* Index of the first element after the elements starting with the prefix */
+    static int prefixEnd(String[] sorted, String prefix) {
+        return partitionPoint(sorted.length, i -> sorted[i].compareTo(prefix) < 0 || sorted[i].startsWith(prefix));
+    }
+
+    /* Index of the first element in [0, size) that is not before, all elements before it must come first */
+    private static int partitionPoint(int size, IntPredicate before) {
+        int low = 0, high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (before.test(mid)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,300 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.departments.DepartmentsImpl;
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.dept_emp.DeptEmpImpl;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.employees.EmployeesImpl;
+import com.company.employees.employees.employees.salaries.Salaries;
+import com.company.employees.employees.employees.salaries.SalariesImpl;
+import com.company.employees.employees.employees.titles.Titles;
+import com.company.employees.employees.employees.titles.TitlesImpl;
+import com.speedment.common.json.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates the employees database instead of loading it from MySQL, so that the application
+ * can run without a database and at sizes beyond the sample data. The department numbers are
+ * taken from the enum constants of dept_no in {@code speedment.json} and the scale factor
+ * multiplies the 300,024 employees of the sample database. Department sizes, the gender balance,
+ * hire dates and yearly salary raises follow the sample data.
+ * <p>
+ * Every employee is generated from a random seeded with the emp_no, so the tables are streamed
+ * on demand with constant memory and are the same every time they are streamed.
+ */
+final class SyntheticSource implements DataSource {
+
+    static final String SOURCE_PROPERTY = "employees.source";
+
+    private static final int SCALE = Integer.getInteger("employees.synthetic.scale", 1);
+    private static final long SEED = Long.getLong("employees.synthetic.seed", 1);
+
+    private static final int SAMPLE_EMPLOYEES = 300_024;
+    private static final int FIRST_EMP_NO = 10_001;
+
+    private static final String SCHEMA_RESOURCE = "/speedment.json";
+
+    /* Names and relative sizes of the departments in the sample database */
+    private static final Map<String, String> NAMES = new HashMap<>();
+    private static final Map<String, Integer> WEIGHTS = new HashMap<>();
+    static {
+        department("d001", "Marketing", 20_211);
+        department("d002", "Finance", 17_346);
+        department("d003", "Human Resources", 17_786);
+        department("d004", "Production", 73_485);
+        department("d005", "Development", 85_707);
+        department("d006", "Quality Management", 20_117);
+        department("d007", "Sales", 52_245);
+        department("d008", "Research", 21_126);
+        department("d009", "Customer Service", 23_580);
+    }
+
+    /* The sample data ends in August 2002, rows still valid then run until 9999-01-01 */
+    private static final int LAST_DAY = (int) LocalDate.of(2002, 8, 1).toEpochDay();
+    private static final Date OPEN = Date.valueOf(LocalDate.of(9999, 1, 1));
+    private static final int FIRST_HIRE_DAY = (int) LocalDate.of(1985, 1, 1).toEpochDay();
+    private static final int LAST_HIRE_DAY = (int) LocalDate.of(2000, 1, 28).toEpochDay();
+    private static final int FIRST_BIRTH_DAY = (int) LocalDate.of(1952, 2, 1).toEpochDay();
+    private static final int LAST_BIRTH_DAY = (int) LocalDate.of(1965, 2, 1).toEpochDay();
+
+    private static final String[] FIRST_NAMES = {
+        "Georgi", "Bezalel", "Parto", "Chirstian", "Kyoichi", "Anneke", "Tzvetan", "Saniya", "Sumant", "Duangkaew",
+        "Mary", "Patricio", "Eberhardt", "Berni", "Guoxiang", "Kazuhito", "Cristinel", "Kazuhide", "Lillian", "Mayuko",
+        "Ramzi", "Shahaf", "Bojan", "Suzette", "Prasadram", "Yongqiao", "Divier", "Domenick", "Otmar", "Elvis",
+        "Karsten", "Jeong", "Arif", "Bader", "Alain", "Adamantios", "Pradeep", "Huan", "Alejandro", "Weiyi",
+        "Uri", "Magy", "Yishay", "Mingsen", "Moss", "Lucien", "Zvonko", "Florian", "Basil", "Yinghua"
+    };
+    private static final String[] NAME_STARTS = {
+        "Fac", "Sim", "Bam", "Kob", "Mal", "Pre", "Zie", "Kal", "Pea", "Pie", "Hau", "Bri", "Cap", "Ste", "Lor",
+        "Gen", "Nam", "Tra", "Dus", "Cas", "Erd", "Str", "Mak", "Wal", "Ran", "Ger", "Nyl", "Mar", "Sch", "Hei"
+    };
+    private static final String[] NAME_ENDS = {
+        "ello", "mel", "baugh", "itz", "ovic", "usch", "ner", "dorf", "son", "ton", "man", "ski", "ica", "lian", "ert",
+        "idou", "mura", "gard", "olli", "ache", "ova", "stein", "ham", "ley", "ing", "enko", "inen", "ard", "isch", "aro"
+    };
+
+    private final List<String> deptNos;
+    private final int[] cumulativeWeights;
+
+    SyntheticSource() {
+        deptNos = deptNos();
+        cumulativeWeights = new int[deptNos.size()];
+        int sum = 0;
+        for (int i = 0; i < deptNos.size(); i++) {
+            sum += WEIGHTS.getOrDefault(deptNos.get(i), 20_000);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    static boolean isEnabled() {
+        return "synthetic".equalsIgnoreCase(System.getProperty(SOURCE_PROPERTY));
+    }
+
+    static int employeeCount() {
+        return SAMPLE_EMPLOYEES * SCALE;
+    }
+
+    @Override
+    public Stream<Departments> departments() {
+        return deptNos.stream().map(deptNo -> new DepartmentsImpl()
+            .setDeptNo(deptNo)
+            .setDeptName(NAMES.getOrDefault(deptNo, "Department " + deptNo))
+        );
+    }
+
+    @Override
+    public Stream<DeptEmp> deptEmps() {
+        return careers().flatMap(Career::deptEmps);
+    }
+
+    @Override
+    public Stream<Employees> employees() {
+        return careers().map(Career::employee);
+    }
+
+    @Override
+    public Stream<Salaries> salaries() {
+        return careers().flatMap(Career::salaries);
+    }
+
+    /* Not read by the dashboards, generated so that every table of the schema can be produced at scale */
+    Stream<Titles> titles() {
+        return careers().flatMap(Career::titles);
+    }
+
+    private Stream<Career> careers() {
+        return IntStream.range(FIRST_EMP_NO, FIRST_EMP_NO + employeeCount()).mapToObj(Career::new);
+    }
+
+    private static void department(String deptNo, String name, int weight) {
+        NAMES.put(deptNo, name);
+        WEIGHTS.put(deptNo, weight);
+    }
+
+    /* Department numbers from the enum constants of departments.dept_no in the database metadata */
+    @SuppressWarnings("unchecked")
+    private static List<String> deptNos() {
+        try (InputStream in = SyntheticSource.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException(SCHEMA_RESOURCE + " is not on the class path");
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                bytes.write(buffer, 0, n);
+            }
+            final Map<String, Object> root = (Map<String, Object>) Json.fromJson(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+            for (Object dbms : children(root.get("config"), "dbmses")) {
+                for (Object schema : children(dbms, "schemas")) {
+                    for (Object table : children(schema, "tables")) {
+                        if (!"departments".equals(((Map<String, Object>) table).get("id"))) {
+                            continue;
+                        }
+                        for (Object column : children(table, "columns")) {
+                            final Map<String, Object> c = (Map<String, Object>) column;
+                            if ("dept_no".equals(c.get("id")) && c.get("enumConstants") != null) {
+                                return Arrays.asList(((String) c.get("enumConstants")).split(","));
+                            }
+                        }
+                    }
+                }
+            }
+            throw new IllegalStateException("No enum constants for departments.dept_no in " + SCHEMA_RESOURCE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> children(Object node, String key) {
+        return (List<Object>) ((Map<String, Object>) node).get(key);
+    }
+
+    private static Date date(int epochDay) {
+        return Date.valueOf(LocalDate.ofEpochDay(epochDay));
+    }
+
+    /* Everything generated for one employee */
+    private final class Career {
+
+        private final int empNo;
+        private final Random random;
+        private final int hireDay;
+        /* Departments worked in and the day each stint started, the last one may have ended */
+        private final String[] depts;
+        private final int[] deptFrom;
+        private final int endDay; // Day after the last day employed, or past LAST_DAY if still employed
+
+        private Career(int empNo) {
+            this.empNo = empNo;
+            this.random = new Random(SEED * 1_000_003L + empNo);
+            this.hireDay = FIRST_HIRE_DAY + skewedDay(LAST_HIRE_DAY - FIRST_HIRE_DAY);
+
+            // About one in ten employees moves to another department and one in ten leaves
+            final boolean moves = random.nextInt(10) == 0 && LAST_DAY - hireDay > 730;
+            depts = moves ? new String[]{department(), department()} : new String[]{department()};
+            deptFrom = moves ? new int[]{hireDay, hireDay + 365 + random.nextInt(LAST_DAY - hireDay - 365)} : new int[]{hireDay};
+            final int lastFrom = deptFrom[deptFrom.length - 1];
+            endDay = random.nextInt(10) == 0 ? lastFrom + 1 + random.nextInt(LAST_DAY - lastFrom) : Integer.MAX_VALUE;
+        }
+
+        /* Hire dates are more common early on, like in the sample data */
+        private int skewedDay(int days) {
+            final double u = random.nextDouble();
+            return (int) (days * u * u);
+        }
+
+        private String department() {
+            final int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (cumulativeWeights[i] <= pick) {
+                i++;
+            }
+            return deptNos.get(i);
+        }
+
+        private Employees employee() {
+            final Random names = new Random(SEED * 7_919L + empNo); // Independent of the rest of the career
+            return new EmployeesImpl()
+                .setEmpNo(empNo)
+                .setBirthDate(date(FIRST_BIRTH_DAY + names.nextInt(LAST_BIRTH_DAY - FIRST_BIRTH_DAY)))
+                .setFirstName(FIRST_NAMES[names.nextInt(FIRST_NAMES.length)])
+                .setLastName(NAME_STARTS[names.nextInt(NAME_STARTS.length)] + NAME_ENDS[names.nextInt(NAME_ENDS.length)])
+                .setGender(names.nextInt(5) < 3 ? Employees.Gender.M : Employees.Gender.F)
+                .setHireDate(date(hireDay));
+        }
+
+        private Stream<DeptEmp> deptEmps() {
+            return IntStream.range(0, depts.length).mapToObj(i -> new DeptEmpImpl()
+                .setEmpNo(empNo)
+                .setDeptNo(depts[i])
+                .setFromDate(date(deptFrom[i]))
+                .setToDate(i + 1 < depts.length ? date(deptFrom[i + 1]) : to(endDay))
+            );
+        }
+
+        /*
+         * One salary a year from the hire date. The starting salary is log-normal with a floor
+         * and every year gives a raise of a few percent, so the distribution has a long right tail.
+         */
+        private Stream<Salaries> salaries() {
+            final List<Salaries> salaries = new ArrayList<>();
+            double salary = 38_000 + Math.exp(9.6 + 0.45 * random.nextGaussian());
+            if ("Sales".equals(NAMES.get(depts[0]))) {
+                salary *= 1.25;
+            }
+            for (int from = hireDay; from <= LAST_DAY && from < endDay; from += 365) {
+                final int to = Math.min(from + 365, endDay);
+                salaries.add(new SalariesImpl()
+                    .setEmpNo(empNo)
+                    .setSalary((int) salary)
+                    .setFromDate(date(from))
+                    .setToDate(to > LAST_DAY ? OPEN : date(to))
+                );
+                salary *= 1 + Math.max(0, 0.03 + 0.02 * random.nextGaussian());
+            }
+            return salaries.stream();
+        }
+
+        /* Engineers in the technical departments and staff elsewhere, most are promoted once after about eight years */
+        private Stream<Titles> titles() {
+            final boolean engineering = Arrays.asList("Development", "Production", "Quality Management", "Research")
+                .contains(NAMES.get(depts[0]));
+            final String first = engineering ? "Engineer" : "Staff";
+            final String promoted = engineering ? "Senior Engineer" : "Senior Staff";
+            final int promotion = hireDay + 2_000 + random.nextInt(2_000);
+            if (promotion >= Math.min(endDay, LAST_DAY)) {
+                return Stream.of(title(first, hireDay, endDay));
+            }
+            return Stream.of(title(first, hireDay, promotion), title(promoted, promotion, endDay));
+        }
+
+        private Titles title(String title, int from, int to) {
+            return new TitlesImpl()
+                .setEmpNo(empNo)
+                .setTitle(title)
+                .setFromDate(date(from))
+                .setToDate(to(to));
+        }
+
+        private Date to(int day) {
+            return day > LAST_DAY ? OPEN : date(day);
+        }
+    }
+}
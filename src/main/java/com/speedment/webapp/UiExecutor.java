@@ -0,0 +1,86 @@
+package com.speedment.webapp;
+
+import com.vaadin.ui.Notification;
+import com.vaadin.ui.UI;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor that runs UI updates off the servlet request threads. Results are
+ * handed back to the session with {@code UI.access}.
+ */
+final class UiExecutor {
+
+    private static final int THREADS = Integer.getInteger("employees.ui.threads", Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = Integer.getInteger("employees.ui.queue", 256);
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private UiExecutor() {
+    }
+
+    /* Throws RejectedExecutionException if the queue is full */
+    static Future<?> submit(Runnable task) {
+        return EXECUTOR.submit(task);
+    }
+
+    /*
+     * Computes a result in the background and shows it in the UI with UI.access. Nobody waits for the
+     * returned Future, so failures are logged and shown as a notification here instead of being kept
+     * in the Future. Cancelled computations are dropped silently since the user has already moved on.
+     */
+    static <T> Future<?> submit(UI ui, Supplier<? extends T> computation, Consumer<? super T> show) {
+        return submit(() -> {
+            final T result;
+            try {
+                result = computation.get();
+            } catch (CancellationException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    System.err.format("Could not update the UI: %s%n", e);
+                    e.printStackTrace();
+                    ui.access(() -> Notification.show("Could not load the data, please try again", Notification.Type.ERROR_MESSAGE));
+                }
+                return;
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                ui.access(() -> show.accept(result));
+            }
+        });
+    }
+
+    /* Interrupts a running update or drops it from the queue if it has not started yet */
+    static void cancel(Future<?> task) {
+        if (task.cancel(true) && task instanceof Runnable) {
+            EXECUTOR.remove((Runnable) task);
+        }
+    }
+
+    static int queueDepth() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            THREADS, THREADS,
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            r -> {
+                final Thread thread = new Thread(r, "ui-update-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,77 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.util.List;
+
+/**
+ * Loads the DataStore on a background thread as soon as the application is deployed and
+ * then runs the join and aggregation code paths a number of times so that they are JIT
+ * compiled before the first user arrives. Progress is reported by {@link ReadinessServlet}.
+ */
+@WebListener
+public class WarmUpListener implements ServletContextListener {
+
+    enum State { STARTING, READY, FAILED }
+
+    private static final int ITERATIONS = Integer.getInteger("employees.warmup.iterations", 3);
+
+    private static volatile State state = State.STARTING;
+    private static volatile String failure;
+
+    private Thread thread;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        thread = new Thread(WarmUpListener::warmUp, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (thread != null) {
+            thread.interrupt();
+        }
+        SnapshotReloader.stop();
+    }
+
+    static State getState() {
+        return state;
+    }
+
+    static String getFailure() {
+        return failure;
+    }
+
+    private static void warmUp() {
+        try {
+            // Restores the snapshot file or loads the DataStore and aggregates the snapshot
+            final DashboardSnapshot snapshot = DataModel.snapshot();
+
+            // The search index is built up front so that the first search does not pay for it
+            if (DataModel.isLoaded() || SyntheticSource.isEnabled()) {
+                DataModel.employeeIndex(snapshot);
+            }
+
+            final List<Departments> departments = snapshot.departments();
+            for (int i = 0; i < ITERATIONS && !Thread.currentThread().isInterrupted(); i++) {
+                for (Departments dept : departments) {
+                    if (DataModel.isLoaded()) {
+                        DataModel.computeDashboard(snapshot, dept);
+                    }
+                    snapshot.columnarIndex().ifPresent(index -> index.dashboard(dept));
+                    DataModel.dashboard(dept);
+                }
+            }
+            state = State.READY;
+        } catch (RuntimeException e) {
+            failure = e.toString();
+            state = State.FAILED;
+            System.err.format("Warm-up failed: %s%n", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.dept_emp.DeptEmpImpl;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.employees.EmployeesImpl;
+import com.company.employees.employees.employees.salaries.Salaries;
+import com.company.employees.employees.employees.salaries.SalariesImpl;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/* The slider asks for dashboards as of Dec 31, so the rows start and end on and around that date */
+public class AsOfIndexTest {
+
+    private static final String OPEN = "9999-01-01";
+
+    private final AsOfIndex index = AsOfIndex.build(
+        Stream.<DeptEmp>of(
+            deptEmp(1, "d001", "2000-01-01", "2000-12-31"),
+            deptEmp(2, "d001", "2000-12-31", OPEN)
+        ),
+        Stream.<Employees>of(
+            employee(1, Employees.Gender.M),
+            employee(2, Employees.Gender.F)
+        ),
+        Stream.<Salaries>of(
+            salary(1, 50_000, "2000-01-01", "2000-12-31"),
+            salary(2, 60_000, "2000-12-31", "2001-12-31"),
+            salary(2, 70_000, "2001-12-31", OPEN)
+        )
+    );
+
+    @Test
+    public void nobodyBeforeTheFirstFromDate() {
+        assertEquals(0, dashboard("1999-12-31").getEmployeeCount());
+    }
+
+    @Test
+    public void fromDateIsIncluded() {
+        final DepartmentDashboard dashboard = dashboard("2000-01-01");
+        assertEquals(Long.valueOf(1), dashboard.getGenderCounts().get(Employees.Gender.M));
+        assertEquals(50_000, dashboard.getAverageSalary(), 0);
+    }
+
+    @Test
+    public void leavingAndJoiningOnTheSameDateCountsBoth() {
+        final DepartmentDashboard dashboard = dashboard("2000-12-31");
+        assertEquals(Long.valueOf(1), dashboard.getGenderCounts().get(Employees.Gender.M));
+        assertEquals(Long.valueOf(1), dashboard.getGenderCounts().get(Employees.Gender.F));
+        assertEquals(55_000, dashboard.getAverageSalary(), 0);
+    }
+
+    @Test
+    public void memberIsGoneTheDayAfterToDate() {
+        final DepartmentDashboard dashboard = dashboard("2001-01-01");
+        assertNull(dashboard.getGenderCounts().get(Employees.Gender.M));
+        assertEquals(Long.valueOf(1), dashboard.getGenderCounts().get(Employees.Gender.F));
+    }
+
+    @Test
+    public void raiseDateCountsTheNewSalaryOnce() {
+        final DepartmentDashboard dashboard = dashboard("2001-12-31");
+        assertEquals(1, dashboard.getEmployeeCount());
+        assertEquals(1, dashboard.getSalaryHistogram().total());
+        assertEquals(70_000, dashboard.getAverageSalary(), 0);
+    }
+
+    @Test
+    public void openToDateIsValidInTheFuture() {
+        final DepartmentDashboard dashboard = dashboard("2050-12-31");
+        assertEquals(1, dashboard.getEmployeeCount());
+        assertEquals(70_000, dashboard.getAverageSalary(), 0);
+    }
+
+    @Test
+    public void unknownDepartmentIsEmpty() {
+        assertEquals(0, index.dashboard("d999", LocalDate.parse("2000-12-31")).getEmployeeCount());
+    }
+
+    private DepartmentDashboard dashboard(String asOf) {
+        return index.dashboard("d001", LocalDate.parse(asOf));
+    }
+
+    private static DeptEmp deptEmp(int empNo, String deptNo, String from, String to) {
+        return new DeptEmpImpl()
+            .setEmpNo(empNo)
+            .setDeptNo(deptNo)
+            .setFromDate(Date.valueOf(from))
+            .setToDate(Date.valueOf(to));
+    }
+
+    private static Employees employee(int empNo, Employees.Gender gender) {
+        return new EmployeesImpl()
+            .setEmpNo(empNo)
+            .setGender(gender);
+    }
+
+    private static Salaries salary(int empNo, int salary, String from, String to) {
+        return new SalariesImpl()
+            .setEmpNo(empNo)
+            .setSalary(salary)
+            .setFromDate(Date.valueOf(from))
+            .setToDate(Date.valueOf(to));
+    }
+}
@@ -0,0 +1,136 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.dept_emp.DeptEmpImpl;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.employees.EmployeesImpl;
+import com.company.employees.employees.employees.salaries.Salaries;
+import com.company.employees.employees.employees.salaries.SalariesImpl;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EmployeeIndexTest {
+
+    private static final char MAX = Character.MAX_VALUE;
+    private static final Date CURRENT_DATE = Date.valueOf("2020-01-01");
+    private static final Date OPEN = Date.valueOf("9999-01-01");
+
+    private final EmployeeIndex index = EmployeeIndex.build(
+        Stream.<Employees>of(
+            employee(1, "Georgi", "Facello"),
+            employee(2, "Bezalel", "Simmel"),
+            employee(3, "Fabian", "Bamford"),
+            employee(4, "Anna", "Fa" + MAX + "x"),
+            employee(5, "Max", "Fa" + MAX),
+            employee(6, "Kyoichi", "Fa" + MAX + MAX)
+        ),
+        Stream.<DeptEmp>of(
+            deptEmp(1, "d001"),
+            deptEmp(2, "d001"),
+            deptEmp(3, "d002"),
+            deptEmp(4, "d001"),
+            deptEmp(5, "d002"),
+            deptEmp(6, "d002")
+        ),
+        Stream.<Salaries>of(
+            salary(1, 60_000),
+            salary(2, 50_000),
+            salary(3, 40_000),
+            salary(4, 80_000),
+            salary(5, 70_000),
+            salary(6, 30_000)
+        ),
+        CURRENT_DATE
+    );
+
+    @Test
+    public void prefixFindsNamesWithMaxValueAfterIt() {
+        assertEquals(Arrays.asList(1, 5, 4, 6, 3), empNos(index.search("fa", null)));
+    }
+
+    @Test
+    public void prefixEndingInMaxValue() {
+        assertEquals(Arrays.asList(5, 4, 6), empNos(index.search("fa" + MAX, null)));
+        assertEquals(Collections.singletonList(6), empNos(index.search("fa" + MAX + MAX, null)));
+    }
+
+    @Test
+    public void prefixOfOnlyMaxValueMatchesNothing() {
+        assertEquals(0, index.search(String.valueOf(MAX), null).count());
+    }
+
+    @Test
+    public void departmentFilter() {
+        assertEquals(Arrays.asList(1, 4), empNos(index.search("fa", "d001")));
+    }
+
+    @Test
+    public void twoWordsMatchFirstAndLastName() {
+        assertEquals(Collections.singletonList(1), empNos(index.search("geo FAC", null)));
+        assertEquals(Collections.singletonList(4), empNos(index.search("ann fa" + MAX, null)));
+    }
+
+    @Test
+    public void blankQueryMatchesNothing() {
+        assertEquals(0, index.search("  ", null).count());
+    }
+
+    @Test
+    public void topEarnersHighestSalaryFirst() {
+        assertEquals(Arrays.asList(4, 1, 2), empNos(index.topEarners("d001")));
+        assertEquals(0, index.topEarners("d999").count());
+    }
+
+    @Test
+    public void resultsBeyondTheLimitAreFlaggedAsTruncated() {
+        final EmployeeIndex large = EmployeeIndex.build(
+            IntStream.rangeClosed(1, EmployeeIndex.LIMIT + 1).mapToObj(empNo -> employee(empNo, "Sumant", "Peac")),
+            Stream.empty(),
+            Stream.empty(),
+            CURRENT_DATE
+        );
+        final EmployeeIndex.Hits hits = large.search("peac", null);
+        assertEquals(EmployeeIndex.LIMIT, hits.count());
+        assertTrue(hits.isTruncated());
+        assertFalse(index.search("fa", null).isTruncated());
+    }
+
+    private static List<Integer> empNos(EmployeeIndex.Hits hits) {
+        return hits.page(0, hits.count()).stream().map(EmployeeIndex.Employee::getEmpNo).collect(toList());
+    }
+
+    private static Employees employee(int empNo, String firstName, String lastName) {
+        return new EmployeesImpl()
+            .setEmpNo(empNo)
+            .setFirstName(firstName)
+            .setLastName(lastName)
+            .setGender(Employees.Gender.F);
+    }
+
+    private static DeptEmp deptEmp(int empNo, String deptNo) {
+        return new DeptEmpImpl()
+            .setEmpNo(empNo)
+            .setDeptNo(deptNo)
+            .setFromDate(Date.valueOf("2000-01-01"))
+            .setToDate(OPEN);
+    }
+
+    private static Salaries salary(int empNo, int salary) {
+        return new SalariesImpl()
+            .setEmpNo(empNo)
+            .setSalary(salary)
+            .setFromDate(Date.valueOf("2019-01-01"))
+            .setToDate(OPEN);
+    }
+}
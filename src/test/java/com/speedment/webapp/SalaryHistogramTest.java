@@ -0,0 +1,87 @@
+package com.speedment.webapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class SalaryHistogramTest {
+
+    private static final double BUCKET = SalaryHistogram.bucketSize(0);
+
+    @Test
+    public void emptyHistogramHasNoSalaries() {
+        final SalaryHistogram empty = SalaryHistogram.empty();
+        assertEquals(0, empty.total());
+        assertEquals(0, empty.size(0));
+        assertEquals(0, empty.count(0, 3));
+        assertEquals(0, empty.counts(0, 0, 100_000).length);
+        assertEquals(0, empty.quantile(0.5), 0);
+    }
+
+    @Test
+    public void histogramWithOnlyEmptyBucketsHasQuantileZero() {
+        final SalaryHistogram histogram = SalaryHistogram.of(new long[] {0, 0, 0});
+        assertEquals(0, histogram.total());
+        assertEquals(0, histogram.quantile(0), 0);
+        assertEquals(0, histogram.quantile(1), 0);
+    }
+
+    @Test
+    public void mergeOfNoHistogramsIsEmpty() {
+        assertEquals(0, SalaryHistogram.merge(Collections.emptyList()).total());
+        assertEquals(0, SalaryHistogram.merge(Arrays.asList(SalaryHistogram.empty(), SalaryHistogram.empty())).total());
+    }
+
+    @Test
+    public void mergeWithEmptyKeepsCounts() {
+        final SalaryHistogram histogram = SalaryHistogram.of(new long[] {1, 2, 3});
+        final SalaryHistogram merged = SalaryHistogram.merge(Arrays.asList(SalaryHistogram.empty(), histogram));
+        assertEquals(histogram.frequencies(), merged.frequencies());
+        assertEquals(histogram.quantile(0.5), merged.quantile(0.5), 0);
+    }
+
+    @Test
+    public void mergeAddsCountsOfDifferentSizes() {
+        final SalaryHistogram merged = SalaryHistogram.merge(Arrays.asList(
+            SalaryHistogram.of(new long[] {1, 2}),
+            SalaryHistogram.of(new long[] {0, 0, 3})
+        ));
+        assertEquals(6, merged.total());
+        assertEquals(3, merged.size(0));
+        assertEquals(1, merged.count(0, 0));
+        assertEquals(2, merged.count(0, 1));
+        assertEquals(3, merged.count(0, 2));
+        assertEquals(3, merged.count(1, 0));
+        assertEquals(3, merged.count(1, 1));
+    }
+
+    @Test
+    public void rankOnBucketBoundaryIsInTheLowerBucket() {
+        // The median rank 2 is the last salary of bucket 0, not the first of bucket 2
+        final SalaryHistogram histogram = SalaryHistogram.of(new long[] {2, 0, 2});
+        assertEquals(BUCKET, histogram.quantile(0.5), 0);
+        assertEquals(2.5 * BUCKET, histogram.quantile(0.75), 0);
+    }
+
+    @Test
+    public void rankOnBoundaryBeforeEmptyBucketsSkipsThem() {
+        final SalaryHistogram histogram = SalaryHistogram.of(new long[] {1, 0, 0, 0, 1});
+        assertEquals(BUCKET, histogram.quantile(0.5), 0);
+        assertEquals(5 * BUCKET, histogram.quantile(1), 0);
+    }
+
+    @Test
+    public void extremeQuantilesAreInTheOuterNonEmptyBuckets() {
+        final SalaryHistogram histogram = SalaryHistogram.of(new long[] {0, 0, 4});
+        assertEquals(2.25 * BUCKET, histogram.quantile(0), 0);
+        assertEquals(3 * BUCKET, histogram.quantile(1), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void quantileAboveOneIsRejected() {
+        SalaryHistogram.of(new long[] {1}).quantile(1.5);
+    }
+}
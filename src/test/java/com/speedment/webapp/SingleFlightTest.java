@@ -0,0 +1,144 @@
+package com.speedment.webapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test(timeout = 10_000)
+    public void followerSharesResultOfLeader() throws Exception {
+        final FutureTask<String> leader = start(() -> flight.get("key", () -> {
+            started.countDown();
+            await(release);
+            return "leader";
+        }));
+        started.await();
+        final FutureTask<String> follower = startFollower();
+        release.countDown();
+
+        assertEquals("leader", leader.get());
+        assertEquals("leader", follower.get());
+        assertEquals(2, flight.getRequests());
+        assertEquals(1, flight.getCoalesced());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test(timeout = 10_000)
+    public void followerGetsExceptionOfFailedLeader() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("Leader failed");
+        final FutureTask<String> leader = start(() -> flight.get("key", () -> {
+            started.countDown();
+            await(release);
+            throw failure;
+        }));
+        started.await();
+        final FutureTask<String> follower = startFollower();
+        release.countDown();
+
+        assertSame(failure, cause(leader));
+        assertSame(failure, cause(follower));
+        assertEquals(0, flight.getCoalesced());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test(timeout = 10_000)
+    public void failureIsNotKept() {
+        try {
+            flight.get("key", () -> {
+                throw new IllegalStateException("Leader failed");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, flight.getInFlight());
+        assertEquals("retry", flight.get("key", () -> "retry"));
+    }
+
+    @Test(timeout = 10_000)
+    public void followerComputesItselfWhenLeaderIsCancelled() throws Exception {
+        final FutureTask<String> leader = start(() -> flight.get("key", () -> {
+            started.countDown();
+            await(release);
+            throw new CancellationException();
+        }));
+        started.await();
+        final FutureTask<String> follower = startFollower();
+        release.countDown();
+
+        assertTrue(cause(leader) instanceof CancellationException);
+        assertEquals("follower", follower.get());
+        assertEquals(0, flight.getCoalesced());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test(timeout = 10_000)
+    public void interruptedFollowerStopsWaiting() throws Exception {
+        final FutureTask<String> leader = start(() -> flight.get("key", () -> {
+            started.countDown();
+            await(release);
+            return "leader";
+        }));
+        started.await();
+        final FutureTask<String> follower = new FutureTask<>(() -> flight.get("key", () -> "follower"));
+        final Thread thread = new Thread(follower);
+        thread.start();
+        awaitWaiting(thread);
+        thread.interrupt();
+
+        assertTrue(cause(follower) instanceof CancellationException);
+        release.countDown();
+        assertEquals("leader", leader.get());
+    }
+
+    /* Starts a second caller for the key and returns once it waits for the first one */
+    private FutureTask<String> startFollower() throws InterruptedException {
+        final FutureTask<String> follower = new FutureTask<>(() -> flight.get("key", () -> "follower"));
+        final Thread thread = new Thread(follower);
+        thread.start();
+        awaitWaiting(thread);
+        return follower;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static FutureTask<String> start(Callable<String> callable) {
+        final FutureTask<String> task = new FutureTask<>(callable);
+        new Thread(task).start();
+        return task;
+    }
+
+    private static Throwable cause(FutureTask<String> task) throws InterruptedException {
+        try {
+            task.get();
+            throw new AssertionError("Expected an exception");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
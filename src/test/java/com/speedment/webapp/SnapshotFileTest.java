@@ -0,0 +1,145 @@
+package com.speedment.webapp;
+
+import com.company.employees.employees.employees.departments.Departments;
+import com.company.employees.employees.employees.departments.DepartmentsImpl;
+import com.company.employees.employees.employees.dept_emp.DeptEmp;
+import com.company.employees.employees.employees.dept_emp.DeptEmpImpl;
+import com.company.employees.employees.employees.employees.Employees;
+import com.company.employees.employees.employees.employees.EmployeesImpl;
+import com.company.employees.employees.employees.salaries.Salaries;
+import com.company.employees.employees.employees.salaries.SalariesImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotFileTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Departments> departments = Arrays.asList(
+        department("d001", "Marketing"),
+        department("d002", "Finance")
+    );
+
+    private final ColumnarIndex index = ColumnarIndex.build(
+        Stream.<DeptEmp>of(
+            deptEmp(1, "d001"),
+            deptEmp(2, "d001"),
+            deptEmp(3, "d002")
+        ),
+        Stream.<Employees>of(
+            employee(1, Employees.Gender.M),
+            employee(2, Employees.Gender.F),
+            employee(3, Employees.Gender.F)
+        ),
+        Stream.<Salaries>of(
+            salary(1, 50_000),
+            salary(2, 60_000),
+            salary(3, 70_000)
+        )
+    );
+
+    private final DashboardSnapshot snapshot = DashboardSnapshot.build(1, LocalDate.now(), departments, index::dashboard, index);
+
+    private Path file;
+
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("snapshot.bin");
+        System.setProperty(SnapshotFile.FILE_PROPERTY, file.toString());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(SnapshotFile.FILE_PROPERTY);
+    }
+
+    @Test
+    public void writtenSnapshotIsReadBack() {
+        SnapshotFile.write(snapshot);
+
+        final DashboardSnapshot restored = SnapshotFile.read(2).orElseThrow(AssertionError::new);
+        assertEquals(2, restored.getVersion());
+        assertEquals(snapshot.getCurrentDate(), restored.getCurrentDate());
+        assertEquals(2, restored.departments().size());
+        assertEquals("d002", restored.departments().get(1).getDeptNo());
+        assertEquals("Finance", restored.departments().get(1).getDeptName());
+        for (Departments dept : departments) {
+            final DepartmentDashboard expected = snapshot.get(dept.getDeptNo()).orElseThrow(AssertionError::new);
+            final DepartmentDashboard actual = restored.get(dept.getDeptNo()).orElseThrow(AssertionError::new);
+            assertEquals(expected.getGenderCounts(), actual.getGenderCounts());
+            assertEquals(expected.getAverageSalary(), actual.getAverageSalary(), 0);
+        }
+        final ColumnarIndex restoredIndex = restored.columnarIndex().orElseThrow(AssertionError::new);
+        assertEquals(2, restoredIndex.size("d001"));
+        assertEquals(2, restoredIndex.members("d001"));
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws Exception {
+        SnapshotFile.write(snapshot);
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertFalse(SnapshotFile.read(2).isPresent());
+    }
+
+    @Test
+    public void fileWithBadChecksumIsRejected() throws Exception {
+        SnapshotFile.write(snapshot);
+        final byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        assertFalse(SnapshotFile.read(2).isPresent());
+    }
+
+    @Test
+    public void writeReplacesThePreviousFile() throws Exception {
+        SnapshotFile.write(snapshot);
+        SnapshotFile.write(DashboardSnapshot.build(2, LocalDate.now(), departments.subList(0, 1), index::dashboard, index));
+
+        assertEquals(1, SnapshotFile.read(3).orElseThrow(AssertionError::new).departments().size());
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertTrue(files.allMatch(file::equals)); // No temporary file is left behind
+        }
+    }
+
+    private static Departments department(String deptNo, String name) {
+        return new DepartmentsImpl()
+            .setDeptNo(deptNo)
+            .setDeptName(name);
+    }
+
+    private static DeptEmp deptEmp(int empNo, String deptNo) {
+        return new DeptEmpImpl()
+            .setEmpNo(empNo)
+            .setDeptNo(deptNo);
+    }
+
+    private static Employees employee(int empNo, Employees.Gender gender) {
+        return new EmployeesImpl()
+            .setEmpNo(empNo)
+            .setGender(gender);
+    }
+
+    private static Salaries salary(int empNo, int salary) {
+        return new SalariesImpl()
+            .setEmpNo(empNo)
+            .setSalary(salary);
+    }
+}